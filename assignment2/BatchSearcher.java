@@ -0,0 +1,201 @@
+import java.io.PrintStream;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+// Runs large batches of queries against the linear, binary and hash search paths.
+// The sorted list and hash index are only read, so a batch is cut into chunks that worker
+// threads search independently. Each chunk keeps plain local totals and publishes them once
+// to striped LongAdder counters, and per-item lines are only formatted when asked for.
+// An optional Bloom filter turns away definite misses before any of the three paths runs.
+// With Metrics enabled every query also records its latency and comparisons on each path.
+public class BatchSearcher {
+
+    private static final int MIN_CHUNK_SIZE = 1024;
+
+    // Per-query distributions, recorded only when Metrics is enabled
+    private static final Metrics.Timer LINEAR_TIME = Metrics.timer("search.linear");
+    private static final Metrics.Timer BINARY_TIME = Metrics.timer("search.binary");
+    private static final Metrics.Timer HASH_TIME = Metrics.timer("search.hash");
+    private static final Metrics.Timer FILTER_TIME = Metrics.timer("search.filter");
+    private static final Metrics.Histogram LINEAR_COMPARISONS = Metrics.histogram("search.linear.comparisons", "comparisons");
+    private static final Metrics.Histogram BINARY_COMPARISONS = Metrics.histogram("search.binary.comparisons", "comparisons");
+    private static final Metrics.Histogram HASH_PROBES = Metrics.histogram("search.hash.probes", "probes");
+    private static final Metrics.Histogram FILTER_PROBES = Metrics.histogram("search.filter.probes", "probes");
+    private static final Metrics.Counter QUERIES = Metrics.counter("search.queries");
+    private static final Metrics.Counter FILTER_REJECTIONS = Metrics.counter("search.filter.rejections");
+    private static final Metrics.Timer BATCH_TIME = Metrics.timer("search.batch", true);
+
+    private final List<String> sortedItems;
+    private final MagicHashIndex hashIndex;
+    private final BloomFilter missFilter; // null when every query goes to the structures
+    private final ExecutorService executor;
+
+    public BatchSearcher(List<String> sortedItems, MagicHashIndex hashIndex) {
+        this(sortedItems, hashIndex, null, ForkJoinPool.commonPool());
+    }
+
+    public BatchSearcher(List<String> sortedItems, MagicHashIndex hashIndex, BloomFilter missFilter) {
+        this(sortedItems, hashIndex, missFilter, ForkJoinPool.commonPool());
+    }
+
+    public BatchSearcher(List<String> sortedItems, MagicHashIndex hashIndex, BloomFilter missFilter,
+                         ExecutorService executor) {
+        // Searches index into the list on every probe, so it must be random access
+        this.sortedItems = sortedItems instanceof RandomAccess ? sortedItems : new ArrayList<>(sortedItems);
+        this.hashIndex = hashIndex;
+        this.missFilter = missFilter;
+        this.executor = executor;
+    }
+
+    // Totals for one batch
+    public static class Result {
+        public final long queries;
+        public final long linearComparisons;
+        public final long binaryComparisons;
+        public final long hashComparisons;
+        public final long filterProbes;
+        public final long filterRejections; // queries answered by the filter alone
+        public final long elapsedNanos;
+
+        Result(long queries, long linear, long binary, long hash, long filterProbes, long filterRejections,
+               long elapsedNanos) {
+            this.queries = queries;
+            this.linearComparisons = linear;
+            this.binaryComparisons = binary;
+            this.hashComparisons = hash;
+            this.filterProbes = filterProbes;
+            this.filterRejections = filterRejections;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public double averageLinear() {
+            return (double) linearComparisons / queries;
+        }
+
+        public double averageBinary() {
+            return (double) binaryComparisons / queries;
+        }
+
+        public double averageHash() {
+            return (double) hashComparisons / queries;
+        }
+
+        public double averageFilterProbes() {
+            return (double) filterProbes / queries;
+        }
+
+        public double queriesPerSecond() {
+            return queries / (elapsedNanos / 1e9);
+        }
+    }
+
+    // Searches every query on all three paths. When printItems is set the per-item lines are
+    // written to out in query order once the batch finishes.
+    public Result search(List<String> queries, boolean printItems, PrintStream out) {
+        List<String> batch = queries instanceof RandomAccess ? queries : new ArrayList<>(queries);
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, (batch.size() + parallelism * 4 - 1) / (parallelism * 4));
+
+        LongAdder linearTotal = new LongAdder();
+        LongAdder binaryTotal = new LongAdder();
+        LongAdder hashTotal = new LongAdder();
+        LongAdder filterTotal = new LongAdder();
+        LongAdder rejectedTotal = new LongAdder();
+
+        Metrics.Span batchSpan = BATCH_TIME.start();
+        long start = System.nanoTime();
+        List<Future<String>> chunks = new ArrayList<>();
+        for (int from = 0; from < batch.size(); from += chunkSize) {
+            int lo = from, hi = Math.min(batch.size(), from + chunkSize);
+            chunks.add(executor.submit(() -> searchChunk(batch, lo, hi, printItems, linearTotal, binaryTotal, hashTotal,
+                                                         filterTotal, rejectedTotal)));
+        }
+        // Chunks are joined in submission order so printed output keeps the query order
+        for (Future<String> chunk : chunks) {
+            try {
+                String lines = chunk.get();
+                if (printItems) {
+                    out.print(lines);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while searching", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Search worker failed", e.getCause());
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        batchSpan.stop();
+
+        return new Result(batch.size(), linearTotal.sum(), binaryTotal.sum(), hashTotal.sum(),
+                          filterTotal.sum(), rejectedTotal.sum(), elapsed);
+    }
+
+    public Result search(List<String> queries) {
+        return search(queries, false, System.out);
+    }
+
+    private String searchChunk(List<String> batch, int lo, int hi, boolean printItems,
+                               LongAdder linearTotal, LongAdder binaryTotal, LongAdder hashTotal,
+                               LongAdder filterTotal, LongAdder rejectedTotal) {
+        StringBuilder lines = printItems ? new StringBuilder() : null;
+        Formatter formatter = printItems ? new Formatter(lines) : null;
+        long linear = 0, binary = 0, hash = 0, filter = 0, rejected = 0;
+
+        for (int i = lo; i < hi; i++) {
+            String searchItem = batch.get(i);
+            int[] linearCount = {0};
+            int[] binaryCount = {0};
+            int[] hashCount = {0};
+            int[] filterCount = {0};
+
+            boolean passed = true;
+            if (missFilter != null) {
+                Metrics.Span span = FILTER_TIME.start();
+                passed = missFilter.mightContain(searchItem, filterCount);
+                span.stop();
+                FILTER_PROBES.record(filterCount[0]);
+            }
+            if (passed) {
+                Metrics.Span span = LINEAR_TIME.start();
+                MagicItemsSearch.linearSearch(sortedItems, searchItem, linearCount);
+                span.stop();
+                span = BINARY_TIME.start();
+                MagicItemsSearch.binarySearch(sortedItems, searchItem, binaryCount);
+                span.stop();
+                span = HASH_TIME.start();
+                hashIndex.find(searchItem, hashCount);
+                span.stop();
+                LINEAR_COMPARISONS.record(linearCount[0]);
+                BINARY_COMPARISONS.record(binaryCount[0]);
+                HASH_PROBES.record(hashCount[0]);
+            } else {
+                rejected++;
+            }
+
+            linear += linearCount[0];
+            binary += binaryCount[0];
+            hash += hashCount[0];
+            filter += filterCount[0];
+
+            if (printItems) {
+                formatter.format("Item: %-20s | Linear: %3d | Binary: %3d | Hash Table: %3d",
+                                 searchItem, linearCount[0], binaryCount[0], hashCount[0]);
+                if (missFilter != null) {
+                    formatter.format(" | Filter: %d", filterCount[0]);
+                }
+                lines.append('\n');
+            }
+        }
+
+        linearTotal.add(linear);
+        binaryTotal.add(binary);
+        hashTotal.add(hash);
+        filterTotal.add(filter);
+        rejectedTotal.add(rejected);
+        QUERIES.add(hi - lo);
+        FILTER_REJECTIONS.add(rejected);
+        return printItems ? lines.toString() : "";
+    }
+}
@@ -0,0 +1,198 @@
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+// Thread-safe open-addressing hash index, so lookups can run while a loader adds items.
+// Reads take no locks and never wait: they are plain volatile reads of the slot array. Writers
+// claim an empty slot with a compare-and-set. Items are never removed, so a slot only ever
+// changes once, from empty to an item or from empty to SEALED.
+//
+// Growing is done online. The writer that crosses the load factor installs a table twice the
+// size, and every writer that runs into it helps work through the old slots in chunks: items
+// are copied into the new table but left where they are, and empty slots are SEALED. A writer
+// adding during growth also seals the first empty slot on its own probe path before moving on.
+// So a probe that reaches a sealed slot has seen every item the old table holds for that key,
+// and carries on in the new table, where anything added since the seal has gone. Once every slot
+// is handled the new table becomes the current one. No table is ever locked, and a reader
+// never needs an item to be in two places at once.
+public class ConcurrentHashIndex {
+
+    private static final float LOAD_FACTOR = 0.5f;
+    private static final int TRANSFER_CHUNK = 64;
+    private static final Object SEALED = new Object();
+
+    private static final AtomicReferenceFieldUpdater<ConcurrentHashIndex, Table> TABLE =
+            AtomicReferenceFieldUpdater.newUpdater(ConcurrentHashIndex.class, Table.class, "table");
+
+    private static final class Table {
+        final AtomicReferenceArray<Object> slots; // null, a String, or SEALED
+        final int mask;
+        final int threshold;
+        final AtomicInteger count = new AtomicInteger(); // items stored in this table
+        final AtomicReference<Table> next = new AtomicReference<>(); // set once growth starts
+        final AtomicInteger transferIndex = new AtomicInteger(); // next slot to hand to a helper
+        final AtomicInteger transferred = new AtomicInteger(); // slots finished by helpers
+        volatile boolean transferDone;
+
+        Table(int capacity) {
+            slots = new AtomicReferenceArray<>(capacity);
+            mask = capacity - 1;
+            threshold = (int) (capacity * LOAD_FACTOR);
+        }
+    }
+
+    private volatile Table table;
+    private final LongAdder size = new LongAdder();
+
+    public ConcurrentHashIndex() {
+        this(16);
+    }
+
+    public ConcurrentHashIndex(int expectedItems) {
+        table = new Table(MagicHashIndex.capacityFor(expectedItems, LOAD_FACTOR));
+    }
+
+    // Looks up an item, counting one probe per occupied slot examined in any table.
+    // Returns true if it is present.
+    public boolean find(String item, int[] probeCount) {
+        int h = MagicHashIndex.hash(item);
+        Table t = table;
+        probing:
+        while (true) {
+            int slot = h & t.mask;
+            for (int i = 0; i <= t.mask; i++) {
+                Object current = t.slots.get(slot);
+                if (current == null) {
+                    return false;
+                }
+                if (current == SEALED) {
+                    t = t.next.get();
+                    continue probing;
+                }
+                probeCount[0]++;
+                if (current.equals(item)) {
+                    return true;
+                }
+                slot = (slot + 1) & t.mask;
+            }
+            // Every slot held another key, only possible mid-growth
+            Table next = t.next.get();
+            if (next == null) {
+                return false;
+            }
+            t = next;
+        }
+    }
+
+    public boolean contains(String item) {
+        return find(item, new int[1]);
+    }
+
+    // Adds an item, returns false if it was already present
+    public boolean add(String item) {
+        if (item == null) {
+            throw new NullPointerException("Item must not be null");
+        }
+        boolean added = insert(table, item, MagicHashIndex.hash(item));
+        if (added) {
+            size.increment();
+        }
+        return added;
+    }
+
+    public void addAll(Collection<String> items) {
+        for (String item : items) {
+            add(item);
+        }
+    }
+
+    // Number of distinct items added
+    public long size() {
+        return size.sum();
+    }
+
+    private boolean insert(Table t, String item, int h) {
+        probing:
+        while (true) {
+            boolean growing = t.next.get() != null;
+            if (growing) {
+                helpTransfer(t);
+            }
+            int slot = h & t.mask;
+            for (int i = 0; i <= t.mask; i++) {
+                Object current = t.slots.get(slot);
+                if (current == null) {
+                    if (!growing && t.count.get() >= t.threshold) {
+                        startResize(t);
+                        continue probing;
+                    }
+                    // While growing, seal the end of this probe path before moving on, so a
+                    // reader walking the same path is sent to the new table to find the item
+                    if (t.slots.compareAndSet(slot, null, growing ? SEALED : item)) {
+                        if (!growing) {
+                            t.count.incrementAndGet();
+                            return true;
+                        }
+                        t = t.next.get();
+                        continue probing;
+                    }
+                    current = t.slots.get(slot); // lost the race, look at what won it
+                }
+                if (current == SEALED) {
+                    t = t.next.get();
+                    continue probing;
+                }
+                if (current.equals(item)) {
+                    return false;
+                }
+                slot = (slot + 1) & t.mask;
+            }
+            // Every slot held another key
+            startResize(t);
+            t = t.next.get();
+        }
+    }
+
+    private void startResize(Table t) {
+        if (t.next.get() == null) {
+            t.next.compareAndSet(null, new Table((t.mask + 1) << 1));
+        }
+        helpTransfer(t);
+    }
+
+    // Claims chunks of the old table until none are left, copying items and sealing empty slots
+    private void helpTransfer(Table t) {
+        Table next = t.next.get();
+        int length = t.mask + 1;
+        while (true) {
+            int start = t.transferIndex.getAndAdd(TRANSFER_CHUNK);
+            if (start >= length) {
+                break;
+            }
+            int end = Math.min(length, start + TRANSFER_CHUNK);
+            for (int i = start; i < end; i++) {
+                // A late writer cannot fill a slot once it is sealed. If the compare-and-set
+                // fails the slot holds an item, or a writer already sealed it on its way past.
+                if (!t.slots.compareAndSet(i, null, SEALED)) {
+                    Object current = t.slots.get(i);
+                    if (current != SEALED) {
+                        String item = (String) current;
+                        insert(next, item, MagicHashIndex.hash(item));
+                    }
+                }
+            }
+            if (t.transferred.addAndGet(end - start) == length) {
+                t.transferDone = true;
+                advanceTable();
+            }
+        }
+    }
+
+    // Moves the current table forward past every table that has been fully copied
+    private void advanceTable() {
+        Table current = table;
+        while (current.transferDone) {
+            TABLE.compareAndSet(this, current, current.next.get());
+            current = table;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// External merge sort for magicitems-style files larger than the heap.
+// The input is read sequentially in chunks that fit the memory budget. Each chunk is sorted on a
+// worker thread and spilled to a temporary run file while the reader moves on to the next chunk,
+// then the runs are k-way merged into the output file. When there are more runs than MAX_FAN_IN
+// they are merged in groups first, so open files and merge buffers stay bounded too.
+//
+// Lines are sorted as unsigned UTF-8 bytes without being decoded, the order MappedCatalog's
+// binarySearch and FrontCodedDictionary expect. Duplicates are kept, like the in-memory sort.
+public class ExternalSorter {
+
+    private static final long DEFAULT_MEMORY_BUDGET = 64L << 20;
+    private static final int MAX_FAN_IN = 64;
+    private static final int LINE_OVERHEAD = 24; // array header plus the reference to it, roughly
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    private final long memoryBudget;
+    private final Path tempDir;
+    private final ExecutorService executor;
+    private final int parallelism;
+
+    public ExternalSorter() {
+        this(DEFAULT_MEMORY_BUDGET, Paths.get(System.getProperty("java.io.tmpdir")), ForkJoinPool.commonPool());
+    }
+
+    // memoryBudget caps the bytes of lines held at once across all chunks being sorted
+    public ExternalSorter(long memoryBudget, Path tempDir, ExecutorService executor) {
+        this.memoryBudget = memoryBudget;
+        this.tempDir = tempDir;
+        this.executor = executor;
+        this.parallelism = Math.max(1, Runtime.getRuntime().availableProcessors());
+    }
+
+    // Totals for one sort
+    public static class Result {
+        public final long lines;
+        public final int runs;
+        public final int mergePasses;
+        public final long elapsedNanos;
+
+        Result(long lines, int runs, int mergePasses, long elapsedNanos) {
+            this.lines = lines;
+            this.runs = runs;
+            this.mergePasses = mergePasses;
+            this.elapsedNanos = elapsedNanos;
+        }
+    }
+
+    // Sorts the lines of input into output. trimEntries has the same meaning as for MappedCatalog.
+    public Result sort(Path input, Path output, boolean trimEntries) throws IOException {
+        long start = System.nanoTime();
+        List<Path> runs = new ArrayList<>();
+        try {
+            long lines = spillRuns(input, trimEntries, runs);
+            int initialRuns = runs.size();
+            int passes = 0;
+            while (runs.size() > MAX_FAN_IN) {
+                runs = mergeGroups(runs);
+                passes++;
+            }
+            merge(runs, output);
+            passes++;
+            return new Result(lines, initialRuns, passes, System.nanoTime() - start);
+        } finally {
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+        }
+    }
+
+    // Reads the input in budget-sized chunks and hands each one to a worker to sort and spill.
+    // At most `parallelism` chunks are in flight, which is what bounds the memory.
+    private long spillRuns(Path input, boolean trimEntries, List<Path> runs) throws IOException {
+        long chunkBudget = Math.max(1, memoryBudget / (parallelism + 1)); // +1 for the chunk being read
+        Semaphore inFlight = new Semaphore(parallelism);
+        List<Future<Path>> pending = new ArrayList<>();
+        long lines = 0;
+
+        try (LineReader reader = new LineReader(Files.newInputStream(input), trimEntries)) {
+            List<byte[]> chunk = new ArrayList<>();
+            long chunkBytes = 0;
+            byte[] line;
+            while ((line = reader.next()) != null) {
+                chunk.add(line);
+                chunkBytes += line.length + LINE_OVERHEAD;
+                lines++;
+                if (chunkBytes >= chunkBudget) {
+                    pending.add(submitRun(chunk, inFlight));
+                    chunk = new ArrayList<>();
+                    chunkBytes = 0;
+                }
+            }
+            if (!chunk.isEmpty() || pending.isEmpty()) {
+                pending.add(submitRun(chunk, inFlight)); // an empty input still gets one (empty) run
+            }
+        } finally {
+            // Collect every run, even after a failure, so the caller can delete them
+            IOException failure = null;
+            for (Future<Path> run : pending) {
+                try {
+                    runs.add(run.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failure = new InterruptedIOException("Interrupted while sorting runs");
+                } catch (ExecutionException e) {
+                    failure = e.getCause() instanceof IOException
+                            ? (IOException) e.getCause() : new IOException("Sorting a run failed", e.getCause());
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+        return lines;
+    }
+
+    private Future<Path> submitRun(List<byte[]> chunk, Semaphore inFlight) throws IOException {
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a sort worker");
+        }
+        return executor.submit(() -> {
+            try {
+                byte[][] lines = chunk.toArray(new byte[0][]);
+                chunk.clear();
+                Arrays.sort(lines, Arrays::compareUnsigned);
+                Path run = Files.createTempFile(tempDir, "magicitems-run", ".txt");
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(run), WRITE_BUFFER_SIZE)) {
+                    for (byte[] line : lines) {
+                        out.write(line);
+                        out.write('\n');
+                    }
+                }
+                return run;
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    // One merge pass: groups of MAX_FAN_IN runs are merged in parallel into fewer, longer runs
+    private List<Path> mergeGroups(List<Path> runs) throws IOException {
+        List<Future<Path>> merged = new ArrayList<>();
+        for (int from = 0; from < runs.size(); from += MAX_FAN_IN) {
+            List<Path> group = runs.subList(from, Math.min(runs.size(), from + MAX_FAN_IN));
+            merged.add(executor.submit(() -> {
+                Path run = Files.createTempFile(tempDir, "magicitems-run", ".txt");
+                merge(group, run);
+                return run;
+            }));
+        }
+        List<Path> next = new ArrayList<>();
+        IOException failure = null;
+        for (Future<Path> run : merged) {
+            try {
+                next.add(run.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = new InterruptedIOException("Interrupted while merging runs");
+            } catch (ExecutionException e) {
+                failure = e.getCause() instanceof IOException
+                        ? (IOException) e.getCause() : new IOException("Merging runs failed", e.getCause());
+            }
+        }
+        for (Path run : runs) {
+            Files.deleteIfExists(run);
+        }
+        if (failure != null) {
+            for (Path run : next) {
+                Files.deleteIfExists(run);
+            }
+            throw failure;
+        }
+        return next;
+    }
+
+    // Head line of one run during a merge
+    private static class RunCursor {
+        final LineReader reader;
+        final int order; // position of the run, keeps equal lines in run order
+        byte[] line;
+
+        RunCursor(LineReader reader, int order) {
+            this.reader = reader;
+            this.order = order;
+        }
+    }
+
+    // k-way merge of sorted runs. Every run is read front to back once and the output written
+    // once, all through large buffers, so the I/O stays sequential.
+    private static void merge(List<Path> runs, Path output) throws IOException {
+        PriorityQueue<RunCursor> heads = new PriorityQueue<>((a, b) -> {
+            int cmp = Arrays.compareUnsigned(a.line, b.line);
+            return cmp != 0 ? cmp : Integer.compare(a.order, b.order);
+        });
+        List<RunCursor> cursors = new ArrayList<>();
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output), WRITE_BUFFER_SIZE)) {
+            for (int i = 0; i < runs.size(); i++) {
+                RunCursor cursor = new RunCursor(new LineReader(Files.newInputStream(runs.get(i)), false), i);
+                cursors.add(cursor);
+                cursor.line = cursor.reader.next();
+                if (cursor.line != null) {
+                    heads.add(cursor);
+                }
+            }
+            while (!heads.isEmpty()) {
+                RunCursor cursor = heads.poll();
+                out.write(cursor.line);
+                out.write('\n');
+                cursor.line = cursor.reader.next();
+                if (cursor.line != null) {
+                    heads.add(cursor);
+                }
+            }
+        } finally {
+            for (RunCursor cursor : cursors) {
+                cursor.reader.close();
+            }
+        }
+    }
+}
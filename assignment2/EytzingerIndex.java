@@ -0,0 +1,100 @@
+import java.util.*;
+
+// Static search array with the sorted items laid out in Eytzinger (breadth-first) order.
+// Node k has its children at 2k and 2k + 1, so the top levels of the search share cache lines
+// and each step down reads a predictable address instead of jumping across the whole array.
+//
+// Each node also caches a packed prefix of its key in a long[]: the first PREFIX_CHARS chars,
+// 7 bits each with larger chars clamped to 127. Packing keeps order (a smaller prefix always
+// means a smaller string) and stays below 2^63, so the descent picks a child with one subtraction
+// and a shift rather than a branch or a String compare. Full compareTo calls only happen once
+// the descent has bottomed out, and only among the items sharing the query's prefix.
+public class EytzingerIndex {
+
+    private static final int PREFIX_CHARS = 9;
+
+    private final String[] sorted; // items in sorted order, results are indexes into it
+    private final long[] prefixes; // packed prefixes in Eytzinger order, slot 0 unused
+    private final int[] ranks; // sorted index of each Eytzinger slot
+    private final int size;
+
+    // Builds the layout from items already sorted with String.compareTo
+    public EytzingerIndex(List<String> sortedItems) {
+        size = sortedItems.size();
+        sorted = sortedItems.toArray(new String[0]);
+        prefixes = new long[size + 1];
+        ranks = new int[size + 1];
+        fill(1, 0);
+    }
+
+    // In-order walk of the implicit tree hands out the sorted items in order
+    private int fill(int k, int next) {
+        if (k > size) {
+            return next;
+        }
+        next = fill(2 * k, next);
+        prefixes[k] = prefix(sorted[next]);
+        ranks[k] = next;
+        next++;
+        return fill(2 * k + 1, next);
+    }
+
+    static long prefix(String str) {
+        long packed = 0;
+        for (int i = 0; i < PREFIX_CHARS; i++) {
+            int c = i < str.length() ? Math.min(str.charAt(i), 127) : 0;
+            packed = (packed << 7) | c;
+        }
+        return packed;
+    }
+
+    // Eytzinger slot of the first key whose prefix is >= target, or 0 if there is none.
+    // Counts one comparison per level descended.
+    private int lowerBound(long target, int[] comparisonCount) {
+        int k = 1;
+        while (k <= size) {
+            comparisonCount[0]++;
+            // (prefix - target) >>> 63 is 1 exactly when prefix < target: go right
+            k = 2 * k + (int) ((prefixes[k] - target) >>> 63);
+        }
+        // Undo the trailing right turns plus the final left turn to get the answer
+        return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+    }
+
+    // Same contract and counting as MagicItemsSearch.binarySearch: returns the sorted index of
+    // the item, or -1 if it is not present
+    public int binarySearch(String searchItem, int[] comparisonCount) {
+        long target = prefix(searchItem);
+        int k = lowerBound(target, comparisonCount);
+        if (k == 0 || prefixes[k] != target) {
+            return -1; // No key shares the prefix, decided without touching any String
+        }
+        int lo = ranks[k];
+        // End of the run sharing this prefix is the lower bound of the next prefix value
+        int end = lowerBound(target + 1, comparisonCount);
+        int hi = (end == 0 ? size : ranks[end]) - 1;
+
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            comparisonCount[0]++;
+            int cmp = sorted[mid].compareTo(searchItem);
+            if (cmp == 0) {
+                return mid;
+            }
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return -1;
+    }
+
+    public String get(int index) {
+        return sorted[index];
+    }
+
+    public int size() {
+        return size;
+    }
+}
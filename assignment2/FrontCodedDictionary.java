@@ -0,0 +1,258 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// Immutable sorted dictionary of item names stored front-coded in a single byte[].
+// Names are grouped into blocks of BLOCK_SIZE. The first name of a block is stored whole and
+// each following name only as the number of bytes it shares with its predecessor plus the
+// remaining suffix, so runs like "Ring of ..." and "Potion of ..." cost a few bytes each.
+// A binary search over the block heads picks the block, then the block is scanned in order.
+//
+// Entries are UTF-8 and compared as unsigned bytes (code point order). That equals
+// String.compareTo order unless names mix surrogate pairs with chars above U+E000.
+public class FrontCodedDictionary {
+
+    private static final int BLOCK_SIZE = 16;
+
+    private final byte[] data;
+    private final int[] blockOffsets; // where each block head starts in data
+    private final int size;
+    private final int maxEntryLength; // longest entry in bytes, sizes decode buffers
+
+    private FrontCodedDictionary(byte[] data, int[] blockOffsets, int size, int maxEntryLength) {
+        this.data = data;
+        this.blockOffsets = blockOffsets;
+        this.size = size;
+        this.maxEntryLength = maxEntryLength;
+    }
+
+    // Builds the dictionary from names already sorted with String.compareTo
+    public static FrontCodedDictionary fromSorted(List<String> sortedItems) {
+        Builder builder = new Builder();
+        for (String item : sortedItems) {
+            builder.add(item);
+        }
+        return builder.build();
+    }
+
+    // Streams a file of sorted lines (such as ExternalSorter output) straight into the dictionary.
+    // Lines are read as bytes and never decoded, so only the compressed dictionary is kept in memory.
+    public static FrontCodedDictionary fromSortedFile(Path sortedFile) throws IOException {
+        Builder builder = new Builder();
+        try (LineReader reader = new LineReader(Files.newInputStream(sortedFile), false)) {
+            byte[] line;
+            while ((line = reader.next()) != null) {
+                builder.add(line);
+            }
+        }
+        return builder.build();
+    }
+
+    // Appends names in sorted order, for sources that should not be held in memory as Strings
+    public static class Builder {
+        private byte[] data = new byte[4096];
+        private int length;
+        private int[] blockOffsets = new int[64];
+        private int size;
+        private int maxEntryLength;
+        private byte[] previous = new byte[0];
+
+        public Builder add(String item) {
+            return add(item.getBytes(StandardCharsets.UTF_8));
+        }
+
+        // Adds an item already encoded as UTF-8. The builder keeps the array, so do not reuse it.
+        public Builder add(byte[] bytes) {
+            if (size > 0 && compareBytes(previous, bytes) > 0) {
+                throw new IllegalArgumentException("Items must be added in sorted order: "
+                                                   + new String(bytes, StandardCharsets.UTF_8));
+            }
+            if (size % BLOCK_SIZE == 0) {
+                int block = size / BLOCK_SIZE;
+                if (block == blockOffsets.length) {
+                    blockOffsets = Arrays.copyOf(blockOffsets, block * 2);
+                }
+                blockOffsets[block] = length;
+                writeVarint(bytes.length);
+                writeBytes(bytes, 0, bytes.length);
+            } else {
+                int shared = 0;
+                int limit = Math.min(previous.length, bytes.length);
+                while (shared < limit && previous[shared] == bytes[shared]) {
+                    shared++;
+                }
+                writeVarint(shared);
+                writeVarint(bytes.length - shared);
+                writeBytes(bytes, shared, bytes.length - shared);
+            }
+            previous = bytes;
+            maxEntryLength = Math.max(maxEntryLength, bytes.length);
+            size++;
+            return this;
+        }
+
+        public FrontCodedDictionary build() {
+            int blocks = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            return new FrontCodedDictionary(Arrays.copyOf(data, length), Arrays.copyOf(blockOffsets, blocks),
+                                            size, maxEntryLength);
+        }
+
+        private void ensureCapacity(int extra) {
+            if (length + extra > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + extra));
+            }
+        }
+
+        private void writeVarint(int value) {
+            ensureCapacity(5);
+            while ((value & ~0x7F) != 0) {
+                data[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[length++] = (byte) value;
+        }
+
+        private void writeBytes(byte[] bytes, int from, int count) {
+            ensureCapacity(count);
+            System.arraycopy(bytes, from, data, length, count);
+            length += count;
+        }
+    }
+
+    private static int compareBytes(byte[] a, byte[] b) {
+        return Arrays.compareUnsigned(a, b);
+    }
+
+    // Binary search with the same comparison counting as MagicItemsSearch.binarySearch:
+    // one per block head probed, then one per entry checked inside the block.
+    // Returns the sorted index of the item, or -1.
+    public int binarySearch(String searchItem, int[] comparisonCount) {
+        if (size == 0) {
+            return -1;
+        }
+        byte[] key = searchItem.getBytes(StandardCharsets.UTF_8);
+        int[] cursor = new int[1];
+
+        // Find the last block whose head is <= key
+        int left = 0;
+        int right = blockOffsets.length - 1;
+        int block = -1;
+        int matched = 0; // bytes the chosen head shares with the key
+        while (left <= right) {
+            int mid = left + (right - left) / 2;
+            comparisonCount[0]++;
+            cursor[0] = blockOffsets[mid];
+            int headLength = readVarint(cursor);
+            int common = commonPrefix(cursor[0], headLength, key, 0);
+            int cmp = compareFrom(cursor[0], headLength, key, common);
+            if (cmp == 0) {
+                return mid * BLOCK_SIZE;
+            }
+            if (cmp < 0) {
+                block = mid;
+                matched = common;
+                left = mid + 1;
+            } else {
+                right = mid - 1;
+            }
+        }
+        if (block < 0) {
+            return -1;
+        }
+
+        // Scan the block. The previous entry is always < key and shares `matched` bytes with it,
+        // so each entry can be decided from its shared-prefix length and suffix alone.
+        cursor[0] = blockOffsets[block];
+        int headLength = readVarint(cursor);
+        cursor[0] += headLength;
+        int end = Math.min(size, (block + 1) * BLOCK_SIZE);
+        for (int index = block * BLOCK_SIZE + 1; index < end; index++) {
+            int shared = readVarint(cursor);
+            int suffixLength = readVarint(cursor);
+            int suffixStart = cursor[0];
+            cursor[0] += suffixLength;
+            comparisonCount[0]++;
+            if (shared > matched) {
+                continue; // Same as the previous entry where it was below the key
+            }
+            if (shared < matched) {
+                return -1; // Differs from the key earlier and upwards, past the key
+            }
+            int common = shared + commonPrefix(suffixStart, suffixLength, key, shared);
+            int cmp = compareFrom(suffixStart - shared, shared + suffixLength, key, common);
+            if (cmp == 0) {
+                return index;
+            }
+            if (cmp > 0) {
+                return -1;
+            }
+            matched = common;
+        }
+        return -1;
+    }
+
+    public boolean contains(String item) {
+        return binarySearch(item, new int[1]) != -1;
+    }
+
+    // Decodes the entry at a sorted index
+    public String get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for dictionary of " + size);
+        }
+        byte[] buffer = new byte[maxEntryLength];
+        int[] cursor = {blockOffsets[index / BLOCK_SIZE]};
+        int length = readVarint(cursor);
+        System.arraycopy(data, cursor[0], buffer, 0, length);
+        cursor[0] += length;
+        for (int i = index % BLOCK_SIZE; i > 0; i--) {
+            int shared = readVarint(cursor);
+            int suffixLength = readVarint(cursor);
+            System.arraycopy(data, cursor[0], buffer, shared, suffixLength);
+            cursor[0] += suffixLength;
+            length = shared + suffixLength;
+        }
+        return new String(buffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Approximate heap footprint of the encoded names and block index
+    public long memoryBytes() {
+        return data.length + 4L * blockOffsets.length;
+    }
+
+    // Bytes of key starting at keyFrom that match data starting at dataFrom
+    private int commonPrefix(int dataFrom, int dataLength, byte[] key, int keyFrom) {
+        int limit = Math.min(dataLength, key.length - keyFrom);
+        int i = 0;
+        while (i < limit && data[dataFrom + i] == key[keyFrom + i]) {
+            i++;
+        }
+        return i;
+    }
+
+    // Compares an entry of entryLength bytes whose first `common` bytes equal the key's.
+    // Only the part from `common` is read from data, so dataFrom may point before a suffix.
+    private int compareFrom(int dataFrom, int entryLength, byte[] key, int common) {
+        if (common < entryLength && common < key.length) {
+            return (data[dataFrom + common] & 0xFF) - (key[common] & 0xFF);
+        }
+        return entryLength - key.length;
+    }
+
+    private int readVarint(int[] cursor) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[cursor[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+}
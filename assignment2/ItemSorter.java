@@ -0,0 +1,12 @@
+// Sorting strategy for item names.
+// Implementations sort the array in place into String.compareTo order and add the
+// number of key comparisons they made to comparisonCount[0].
+public interface ItemSorter {
+
+    void sort(String[] items, int[] comparisonCount);
+
+    // Adds a long tally to an int[] counter without wrapping past Integer.MAX_VALUE
+    static void addComparisons(int[] comparisonCount, long comparisons) {
+        comparisonCount[0] = (int) Math.min(Integer.MAX_VALUE, comparisonCount[0] + comparisons);
+    }
+}
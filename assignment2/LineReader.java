@@ -0,0 +1,101 @@
+import java.io.*;
+import java.util.Arrays;
+
+// Reads a magicitems-style stream one line at a time as raw UTF-8 bytes, through its own buffer.
+// Lines are never decoded, so sorting and merging can compare them as unsigned bytes the same
+// way MappedCatalog and FrontCodedDictionary do. Line handling matches MappedCatalog: a trailing
+// \r is dropped, and with trimEntries set whitespace is trimmed and blank lines are skipped.
+class LineReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final InputStream in;
+    private final boolean trimEntries;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private byte[] pending = new byte[256]; // a line that runs past the end of the buffer
+
+    LineReader(InputStream in, boolean trimEntries) {
+        this.in = in;
+        this.trimEntries = trimEntries;
+    }
+
+    // Next line, or null at the end of the stream
+    byte[] next() throws IOException {
+        while (true) {
+            byte[] line = nextRaw();
+            if (line == null || !trimEntries) {
+                return line;
+            }
+            int from = 0, to = line.length;
+            while (from < to && (line[from] & 0xFF) <= ' ') {
+                from++;
+            }
+            while (to > from && (line[to - 1] & 0xFF) <= ' ') {
+                to--;
+            }
+            if (from < to) {
+                return from == 0 && to == line.length ? line : Arrays.copyOfRange(line, from, to);
+            }
+        }
+    }
+
+    private byte[] nextRaw() throws IOException {
+        int pendingLength = 0;
+        while (true) {
+            if (position == limit && !fill()) {
+                // A final line without a trailing newline is still a line
+                return pendingLength == 0 ? null : stripReturn(pending, pendingLength);
+            }
+            int start = position;
+            while (position < limit && buffer[position] != '\n') {
+                position++;
+            }
+            int length = position - start;
+            if (position < limit) {
+                position++; // step over the newline
+                if (pendingLength == 0) {
+                    return stripReturn(buffer, start, length);
+                }
+                appendPending(start, length, pendingLength);
+                return stripReturn(pending, pendingLength + length);
+            }
+            appendPending(start, length, pendingLength);
+            pendingLength += length;
+        }
+    }
+
+    private void appendPending(int start, int length, int pendingLength) {
+        if (pendingLength + length > pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(pending.length * 2, pendingLength + length));
+        }
+        System.arraycopy(buffer, start, pending, pendingLength, length);
+    }
+
+    private static byte[] stripReturn(byte[] bytes, int length) {
+        return stripReturn(bytes, 0, length);
+    }
+
+    private static byte[] stripReturn(byte[] bytes, int from, int length) {
+        if (length > 0 && bytes[from + length - 1] == '\r') {
+            length--;
+        }
+        return Arrays.copyOfRange(bytes, from, from + length);
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(buffer);
+        if (n <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = n;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
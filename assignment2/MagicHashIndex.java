@@ -0,0 +1,153 @@
+import java.util.*;
+
+// Open-addressing hash index for item names.
+// Keys live in one flat String[] with their hashes cached in a parallel int[], so a probe
+// sequence walks neighbouring array slots instead of chasing LinkedList nodes. The table
+// doubles whenever it passes the load factor, which keeps probe counts flat as the catalog grows.
+public class MagicHashIndex {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+    private static final float DEFAULT_LOAD_FACTOR = 0.5f;
+
+    private final float loadFactor;
+    private String[] keys; // null marks an empty slot
+    private int[] hashes; // cached hash for each occupied slot
+    private int size;
+    private int resizeThreshold;
+
+    public MagicHashIndex() {
+        this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR);
+    }
+
+    public MagicHashIndex(int expectedItems) {
+        this(capacityFor(expectedItems, DEFAULT_LOAD_FACTOR), DEFAULT_LOAD_FACTOR);
+    }
+
+    public MagicHashIndex(int initialCapacity, float loadFactor) {
+        if (loadFactor <= 0f || loadFactor >= 1f) {
+            throw new IllegalArgumentException("Load factor must be between 0 and 1: " + loadFactor);
+        }
+        this.loadFactor = loadFactor;
+        allocate(tableSizeFor(initialCapacity));
+    }
+
+    // Mixes String.hashCode (cached by the String itself) with the murmur3 finalizer so
+    // that names differing in a single character still land far apart in the table
+    static int hash(String str) {
+        int h = str.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    // Smallest power of two table that holds the given number of items under the load factor
+    static int capacityFor(int expectedItems, float loadFactor) {
+        return tableSizeFor((int) Math.min(MAXIMUM_CAPACITY, (long) Math.ceil(expectedItems / (double) loadFactor) + 1));
+    }
+
+    private static int tableSizeFor(int capacity) {
+        int n = Math.max(capacity, 2);
+        return n >= MAXIMUM_CAPACITY ? MAXIMUM_CAPACITY : Integer.highestOneBit(n - 1) << 1;
+    }
+
+    private void allocate(int capacity) {
+        keys = new String[capacity];
+        hashes = new int[capacity];
+        resizeThreshold = (int) (capacity * loadFactor);
+    }
+
+    // Adds an item to the index, returns false if it was already present
+    public boolean add(String item) {
+        if (item == null) {
+            throw new NullPointerException("Item must not be null");
+        }
+        if (size >= keys.length - 1) {
+            // Only reachable at the maximum capacity; always keep one empty slot to end probes
+            throw new IllegalStateException("Hash index is full");
+        }
+        int h = hash(item);
+        int mask = keys.length - 1;
+        int slot = h & mask;
+        while (keys[slot] != null) {
+            if (hashes[slot] == h && keys[slot].equals(item)) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = item;
+        hashes[slot] = h;
+        if (++size > resizeThreshold && keys.length < MAXIMUM_CAPACITY) {
+            resize(keys.length << 1);
+        }
+        return true;
+    }
+
+    public void addAll(Collection<String> items) {
+        // Grow once up front rather than doubling repeatedly during the bulk load
+        int needed = capacityFor(size + items.size(), loadFactor);
+        if (needed > keys.length) {
+            resize(needed);
+        }
+        for (String item : items) {
+            add(item);
+        }
+    }
+
+    // Rehashes every key into a table of the new capacity, reusing the cached hashes
+    private void resize(int newCapacity) {
+        if (newCapacity <= keys.length) {
+            return;
+        }
+        String[] oldKeys = keys;
+        int[] oldHashes = hashes;
+        allocate(newCapacity);
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = oldHashes[i] & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                hashes[slot] = oldHashes[i];
+            }
+        }
+    }
+
+    // Looks up an item and counts one probe per occupied slot examined.
+    // Returns the slot holding the item, or -1 if it is not in the index.
+    public int find(String item, int[] probeCount) {
+        int h = hash(item);
+        int mask = keys.length - 1;
+        int slot = h & mask;
+        while (keys[slot] != null) {
+            probeCount[0]++;
+            if (hashes[slot] == h && keys[slot].equals(item)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    public boolean contains(String item) {
+        return find(item, new int[1]) != -1;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, null);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return keys.length;
+    }
+}
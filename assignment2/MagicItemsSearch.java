@@ -1,91 +1,81 @@
 import java.io.*;
+import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 public class MagicItemsSearch {
 
-    // Hash table size
-    private static final int HASH_TABLE_SIZE = 250;
+    // Sorting strategy used by main: "merge" (the default) for ParallelMergeSort or "radix" for
+    // MsdRadixSort, run with -Dmagicitems.sorter=radix
+    private static final String SORTER = System.getProperty("magicitems.sorter", "merge");
 
-    // Hash table with chaining
-    private static List<List<String>> hashTable = new ArrayList<>(HASH_TABLE_SIZE);
+    // Open-addressing hash index, grows with the catalog instead of a fixed bucket count
+    private static MagicHashIndex hashTable = new MagicHashIndex();
 
-    static {
-        // Initialize each bucket as an empty list for chaining
-        for (int i = 0; i < HASH_TABLE_SIZE; i++) {
-            hashTable.add(new LinkedList<>());
-        }
-    }
+    // Optional Bloom filter in front of every search path, run with -Dmagicitems.missFilter=true
+    private static final boolean USE_MISS_FILTER = Boolean.getBoolean("magicitems.missFilter");
+    private static final double MISS_FILTER_FALSE_POSITIVE_RATE = 0.01;
+    private static BloomFilter missFilter;
 
-    // Hash function from the example code
-    private static int makeHashCode(String str) {
-        str = str.toUpperCase();
-        int letterTotal = 0;
-        for (int i = 0; i < str.length(); i++) {
-            letterTotal += str.charAt(i);
-        }
-        return letterTotal % HASH_TABLE_SIZE;
-    }
+    // Sort the file on disk instead of in the heap, run with -Dmagicitems.externalSort=true
+    private static final boolean EXTERNAL_SORT = Boolean.getBoolean("magicitems.externalSort");
+
+    // Also look up the first few letters of each search item in a PrefixIndex built from the
+    // loaded items, run with -Dmagicitems.prefixSearch=true
+    private static final boolean PREFIX_SEARCH = Boolean.getBoolean("magicitems.prefixSearch");
+    private static final int PREFIX_LENGTH = 3;
+    private static final int COMPLETIONS = 5;
+
+    // Also reload the items into a ConcurrentHashIndex while reader threads look up the search
+    // list, run with -Dmagicitems.concurrentLoad=true
+    private static final boolean CONCURRENT_LOAD = Boolean.getBoolean("magicitems.concurrentLoad");
+
+    private static final Metrics.Timer SORT_TIME = Metrics.timer("sort", true);
+    private static final Metrics.Counter SORT_COMPARISONS = Metrics.counter("sort.comparisons");
+    private static final Metrics.Timer LOAD_TIME = Metrics.timer("hashTable.load", true);
+    private static final Metrics.Timer PREFIX_BUILD_TIME = Metrics.timer("prefixIndex.build", true);
+    private static final Metrics.Histogram PREFIX_VISITS = Metrics.histogram("search.prefix.visits", "nodes");
+    private static final Metrics.Histogram COMPLETE_VISITS = Metrics.histogram("search.complete.visits", "nodes");
 
     // Load items into the hash table
     public static void loadHashTable(List<String> items) {
-        for (String item : items) {
-            int hashCode = makeHashCode(item);
-            hashTable.get(hashCode).add(item);
-        }
+        Metrics.Span span = LOAD_TIME.start();
+        hashTable.addAll(items);
+        span.stop();
     }
 
-    // Retrieve item from hash table and count comparisons
-    public static int retrieveFromHashTable(String item) {
-        int hashCode = makeHashCode(item);
-        List<String> bucket = hashTable.get(hashCode);
-        int comparisons = 0;
-        
-        for (String element : bucket) {
-            comparisons++;
-            if (element.equals(item)) {
-                break;
-            }
-        }
+    // Build the miss filter over the same items as the hash table
+    public static void loadMissFilter(List<String> items) {
+        missFilter = BloomFilter.of(items, MISS_FILTER_FALSE_POSITIVE_RATE);
+    }
 
-        return comparisons;
+    // Retrieve item from hash table and count comparisons (probes)
+    public static int retrieveFromHashTable(String item) {
+        int[] comparisons = {0};
+        hashTable.find(item, comparisons);
+        return comparisons[0];
     }
 
 
     //What a wholesome function! ❤️❤️❤️
     public static void performAllSearches(List<String> sortedItems, List<String> searchList) {
-        int totalLinearComparisons = 0;
-        int totalBinaryComparisons = 0;
-        int totalHashComparisons = 0;
-
-        for (String searchItem : searchList) {
-            int[] linearCount = {0};
-            int[] binaryCount = {0};
-
-            // Perform a linear search on the entire sortedItems list
-            linearSearch(sortedItems, searchItem, linearCount);
-            totalLinearComparisons += linearCount[0];
-
-            // Perform a binary search on the entire sortedItems list
-            binarySearch(sortedItems, searchItem, binaryCount);
-            totalBinaryComparisons += binaryCount[0];
-
-            // Perform a hash table search on the same search list
-            int hashComparisons = retrieveFromHashTable(searchItem);
-            totalHashComparisons += hashComparisons;
-
-            //The unalligned columns add character :0 🫨🫨🫨
-            System.out.printf("Item: %-20s | Linear: %3d | Binary: %3d | Hash Table: %3d\n", 
-                              searchItem, linearCount[0], binaryCount[0], hashComparisons);
-        }
+        // Queries run in parallel on worker threads, lines still print in search order
+        BatchSearcher.Result result = new BatchSearcher(sortedItems, hashTable, missFilter).search(searchList, true, System.out);
 
         // Calculate averages
-        double averageLinear = (double) totalLinearComparisons / searchList.size();
-        double averageBinary = (double) totalBinaryComparisons / searchList.size();
-        double averageHash = (double) totalHashComparisons / searchList.size();
+        double averageLinear = result.averageLinear();
+        double averageBinary = result.averageBinary();
+        double averageHash = result.averageHash();
 
         // I think I will name him Hunter 🎉🎉🎉
         System.out.printf("\nAverages - Linear: %.2f | Binary: %.2f | Hash Table: %.2f\n",
                           averageLinear, averageBinary, averageHash);
+        if (missFilter != null) {
+            System.out.printf("Miss filter - Probes: %.2f | Rejected: %d | Estimated false positive rate: %.4f\n",
+                              result.averageFilterProbes(), result.filterRejections,
+                              missFilter.estimatedFalsePositiveRate());
+        }
     }
 
     // Function to capitalize the first letter of each string
@@ -100,10 +90,11 @@ public class MagicItemsSearch {
 
     // Knuth (Fisher-Yates) shuffle
     public static void knuthShuffle(List<String> arr) {
-        Random rand = new Random();
-        for (int i = arr.size() - 1; i > 0; i--) {
-            int j = rand.nextInt(i + 1);
-            Collections.swap(arr, i, j);
+        // Shuffle an array copy instead of swapping through the List interface
+        String[] shuffled = arr.toArray(new String[0]);
+        WorkloadSampler.shuffle(shuffled, new SplittableRandom());
+        for (int i = 0; i < shuffled.length; i++) {
+            arr.set(i, shuffled[i]);
         }
     }
 
@@ -124,6 +115,29 @@ public class MagicItemsSearch {
         }
     }
 
+    // The sorter picked by -Dmagicitems.sorter
+    public static ItemSorter sorter() {
+        switch (SORTER) {
+            case "merge":
+                return new ParallelMergeSort();
+            case "radix":
+                return new MsdRadixSort();
+            default:
+                throw new IllegalArgumentException("Unknown sorter: " + SORTER);
+        }
+    }
+
+    // Sorts a copy of the items with the given sorter, working on an array rather than the List
+    public static List<String> sortItems(List<String> items, ItemSorter sorter, int[] comparisonCount) {
+        String[] sorted = items.toArray(new String[0]);
+        int before = comparisonCount[0];
+        Metrics.Span span = SORT_TIME.start();
+        sorter.sort(sorted, comparisonCount);
+        span.stop();
+        SORT_COMPARISONS.add(comparisonCount[0] - before);
+        return Arrays.asList(sorted);
+    }
+
     // Linear Search
     public static int linearSearch(List<String> arr, String searchItem, int[] comparisonCount) {
         for (int i = 0; i < arr.size(); i++) {
@@ -157,24 +171,146 @@ public class MagicItemsSearch {
     // Select 42 random items from array 🃏🃏🃏
     //consider balatro
     public static List<String> randomSelection(List<String> arr, int count) {
-        List<String> selection = new ArrayList<>();
-        Random rand = new Random();
-        for (int i = 0; i < count; i++) {
-            int randomIndex = rand.nextInt(arr.size());
-            selection.add(arr.get(randomIndex));
+        return WorkloadSampler.sampleWithReplacement(arr, count, new SplittableRandom());
+    }
+
+    // Types the first PREFIX_LENGTH letters of each search item into a case-insensitive
+    // PrefixIndex over the items, listing every item starting with them and the top
+    // COMPLETIONS completions, and prints the node visits of both the way the searches print
+    // comparisons
+    public static void performPrefixSearches(List<String> items, List<String> searchList) {
+        Metrics.Span span = PREFIX_BUILD_TIME.start();
+        PrefixIndex prefixIndex = PrefixIndex.build(items, true);
+        span.stop();
+
+        long prefixTotal = 0, completeTotal = 0;
+        System.out.println();
+        for (String searchItem : searchList) {
+            String prefix = searchItem.substring(0, Math.min(PREFIX_LENGTH, searchItem.length())).toLowerCase(Locale.ROOT);
+            int[] prefixVisits = {0};
+            int[] completeVisits = {0};
+            List<String> matches = prefixIndex.startingWith(prefix, prefixVisits);
+            List<String> completions = prefixIndex.complete(prefix, COMPLETIONS, completeVisits);
+            PREFIX_VISITS.record(prefixVisits[0]);
+            COMPLETE_VISITS.record(completeVisits[0]);
+            prefixTotal += prefixVisits[0];
+            completeTotal += completeVisits[0];
+            System.out.printf("Prefix: %-5s | Starting with: %3d items, %4d visits | Top %d: %d items, %3d visits\n",
+                              prefix, matches.size(), prefixVisits[0], COMPLETIONS, completions.size(),
+                              completeVisits[0]);
         }
-        return selection;
+        System.out.printf("\nPrefix averages - Starting with: %.2f | Top %d: %.2f\n",
+                          (double) prefixTotal / searchList.size(), COMPLETIONS,
+                          (double) completeTotal / searchList.size());
     }
 
-    public static void main(String[] args) {
-        List<String> items = new ArrayList<>();
+    // Loads the items into a fresh ConcurrentHashIndex on this thread while reader threads keep
+    // looking up the search list. The index starts small, so the load resizes it many times under
+    // the readers. A reader that misses an item the loader had already added counts a stale miss,
+    // which the index must never give. Afterwards every item has to be there exactly once.
+    public static void concurrentLoad(List<String> items, List<String> searchList) {
+        Map<String, Integer> loadedAt = new HashMap<>(); // position of each item in load order
+        for (int i = items.size() - 1; i >= 0; i--) {
+            loadedAt.put(items.get(i), i);
+        }
+        int readers = Math.max(2, Runtime.getRuntime().availableProcessors() - 1);
+        ConcurrentHashIndex index = new ConcurrentHashIndex();
+        AtomicInteger loaded = new AtomicInteger(); // items before this position have been added
+        AtomicBoolean done = new AtomicBoolean();
+        LongAdder lookups = new LongAdder();
+        LongAdder staleMisses = new LongAdder();
+
+        ExecutorService executor = Executors.newFixedThreadPool(readers);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int r = 0; r < readers; r++) {
+            int offset = r;
+            tasks.add(executor.submit(() -> {
+                int[] probes = {0};
+                for (int i = offset; !done.get(); i++) {
+                    String item = searchList.get(i % searchList.size());
+                    int addedBefore = loaded.get();
+                    if (!index.find(item, probes) && loadedAt.get(item) < addedBefore) {
+                        staleMisses.increment();
+                    }
+                    lookups.increment();
+                }
+            }));
+        }
+        for (String item : items) {
+            index.add(item);
+            loaded.incrementAndGet();
+        }
+        done.set(true);
+        try {
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException("Reader failed during the concurrent load", e);
+        } finally {
+            executor.shutdown();
+        }
+
+        int[] probes = {0};
+        long found = searchList.stream().filter(item -> index.find(item, probes)).count();
+        System.out.printf("Concurrent load - Readers: %d | Lookups during load: %d | Stale misses: %d | "
+                          + "Items: %d of %d | Found after load: %d of %d | Probes: %.2f\n",
+                          readers, lookups.sum(), staleMisses.sum(), index.size(), loadedAt.size(),
+                          found, searchList.size(), (double) probes[0] / searchList.size());
+    }
+
+    // Bounded-memory version of main for catalogs larger than the heap. The file is sorted on
+    // disk, then binary search runs over the memory-mapped sorted file and the front-coded
+    // dictionary is streamed from it, so the items are never all held as Strings. Items are
+    // searched as they appear in the file (no capitalizing), and there is no hash table.
+    public static void externalSearch(String fileName, int count) throws IOException {
+        Path sortedFile = Files.createTempFile("magicitems-sorted", ".txt");
+        try {
+            Metrics.Span span = SORT_TIME.start();
+            ExternalSorter.Result sort = new ExternalSorter().sort(Paths.get(fileName), sortedFile, false);
+            span.stop();
+            System.out.printf("Externally sorted %d items in %d run(s), %d merge pass(es), %.1f ms\n\n",
+                              sort.lines, sort.runs, sort.mergePasses, sort.elapsedNanos / 1e6);
+
+            MappedCatalog catalog = MappedCatalog.open(sortedFile, false);
+            FrontCodedDictionary dictionary = FrontCodedDictionary.fromSortedFile(sortedFile);
+            List<String> searchList = WorkloadSampler.sampleWithReplacement(catalog.asList(), count,
+                                                                             new SplittableRandom());
 
-        // Read from file
-        try (BufferedReader br = new BufferedReader(new FileReader("assignment2/magicitems.txt"))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                items.add(line);
+            long binaryTotal = 0, dictionaryTotal = 0;
+            for (String searchItem : searchList) {
+                int[] binaryCount = {0};
+                int[] dictionaryCount = {0};
+                catalog.binarySearch(searchItem, binaryCount);
+                dictionary.binarySearch(searchItem, dictionaryCount);
+                binaryTotal += binaryCount[0];
+                dictionaryTotal += dictionaryCount[0];
+                System.out.printf("Item: %-20s | Binary: %3d | Dictionary: %3d\n",
+                                  searchItem, binaryCount[0], dictionaryCount[0]);
             }
+            System.out.printf("\nAverages - Binary: %.2f | Dictionary: %.2f\n",
+                              (double) binaryTotal / searchList.size(), (double) dictionaryTotal / searchList.size());
+        } finally {
+            Files.deleteIfExists(sortedFile);
+        }
+    }
+
+    public static void main(String[] args) {
+        if (EXTERNAL_SORT) {
+            try {
+                externalSearch("assignment2/magicitems.txt", 42);
+            } catch (IOException e) {
+                System.err.println("Error: Could not sort magicitems.txt: " + e.getMessage());
+            }
+            Metrics.exportIfRequested();
+            return;
+        }
+
+        List<String> items;
+
+        // Map the file, the items are copied out since they get capitalized and shuffled below
+        try {
+            items = new ArrayList<>(MappedCatalog.open("assignment2/magicitems.txt", false).asList());
         } catch (IOException e) {
             System.err.println("Error: Could not open file magicitems.txt");
             return;
@@ -183,17 +319,33 @@ public class MagicItemsSearch {
         // Capitalize, shuffle, and sort
         capitalizeFirstLetter(items);
         knuthShuffle(items);
-        List<String> sortedItems = new ArrayList<>(items);
         int[] comparisonCount = {0};
-        selectionSort(sortedItems, comparisonCount);
+        List<String> sortedItems = sortItems(items, sorter(), comparisonCount);
+        if (SORTER.equals("radix")) {
+            // The radix passes never compare two keys, so this is not comparable with merge sort's count
+            System.out.printf("Sorted with MSD radix sort: %d comparisons, counting only the insertion sort "
+                              + "of small buckets\n\n", comparisonCount[0]);
+        }
 
         // Load hash table with all items
         loadHashTable(items);
+        if (USE_MISS_FILTER) {
+            loadMissFilter(items);
+        }
 
         // Randomly select 42 items for search tests
         List<String> searchList = randomSelection(sortedItems, 42);
 
         // Perform all searches and print comparisons and averages
         performAllSearches(sortedItems, searchList);
+        if (PREFIX_SEARCH) {
+            performPrefixSearches(items, searchList);
+        }
+        if (CONCURRENT_LOAD) {
+            concurrentLoad(items, searchList);
+        }
+
+        // Run with -Dmetrics.out=metrics.json (or .csv) for latency percentiles and distributions
+        Metrics.exportIfRequested();
     }
 }
@@ -0,0 +1,153 @@
+import java.util.concurrent.*;
+
+// Most-significant-digit radix sort specialised for strings.
+// Each UTF-16 char is split into a high and a low byte digit, so 256-way buckets reproduce
+// String.compareTo order exactly. Buckets from a partition are independent and are sorted in
+// parallel on a fork-join pool. Small buckets fall back to insertion sort, and only those
+// string comparisons are counted since the distribution passes never compare two keys.
+public class MsdRadixSort implements ItemSorter {
+
+    private static final int RADIX = 256;
+    private static final int INSERTION_SORT_CUTOFF = 32;
+    private static final int SEQUENTIAL_CUTOFF = 1 << 12;
+
+    private final ForkJoinPool pool;
+
+    public MsdRadixSort() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public MsdRadixSort(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public void sort(String[] items, int[] comparisonCount) {
+        if (items.length < 2) {
+            return;
+        }
+        String[] aux = new String[items.length];
+        long comparisons = pool.invoke(new RadixTask(items, aux, 0, items.length, 0));
+        ItemSorter.addComparisons(comparisonCount, comparisons);
+    }
+
+    // Byte digit d of the string, or -1 once the string has ended
+    private static int digitAt(String str, int d) {
+        int index = d >>> 1;
+        if (index >= str.length()) {
+            return -1;
+        }
+        char c = str.charAt(index);
+        return (d & 1) == 0 ? c >>> 8 : c & 0xFF;
+    }
+
+    // Sorts a[lo, hi) whose keys all share their first d digits, using aux[lo, hi) as scratch
+    private static class RadixTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final String[] a, aux;
+        private final int lo, hi, d;
+
+        RadixTask(String[] a, String[] aux, int lo, int hi, int d) {
+            this.a = a;
+            this.aux = aux;
+            this.lo = lo;
+            this.hi = hi;
+            this.d = d;
+        }
+
+        @Override
+        protected Long compute() {
+            if (hi - lo <= SEQUENTIAL_CUTOFF) {
+                return sequentialSort(a, aux, lo, hi, d);
+            }
+            int[] starts = distribute(a, aux, lo, hi, d);
+            RadixTask[] tasks = new RadixTask[RADIX];
+            int forked = 0;
+            long comparisons = 0;
+            // Bucket 0 holds strings that ended at this digit, they are already equal
+            for (int r = 0; r < RADIX; r++) {
+                int from = starts[r + 1], to = starts[r + 2];
+                if (to - from > SEQUENTIAL_CUTOFF) {
+                    tasks[forked++] = new RadixTask(a, aux, from, to, d + 1);
+                    tasks[forked - 1].fork();
+                } else if (to - from > 1) {
+                    comparisons += sequentialSort(a, aux, from, to, d + 1);
+                }
+            }
+            for (int i = 0; i < forked; i++) {
+                comparisons += tasks[i].join();
+            }
+            return comparisons;
+        }
+    }
+
+    private static long sequentialSort(String[] a, String[] aux, int lo, int hi, int d) {
+        if (hi - lo <= INSERTION_SORT_CUTOFF) {
+            return insertionSort(a, lo, hi, d);
+        }
+        int[] starts = distribute(a, aux, lo, hi, d);
+        long comparisons = 0;
+        for (int r = 0; r < RADIX; r++) {
+            int from = starts[r + 1], to = starts[r + 2];
+            if (to - from > 1) {
+                comparisons += sequentialSort(a, aux, from, to, d + 1);
+            }
+        }
+        return comparisons;
+    }
+
+    // Counting-sort pass on digit d. Returns bucket boundaries: bucket b (0 = ended) spans
+    // [starts[b], starts[b + 1]) in a, so byte value r spans [starts[r + 1], starts[r + 2]).
+    private static int[] distribute(String[] a, String[] aux, int lo, int hi, int d) {
+        int[] count = new int[RADIX + 2];
+        for (int i = lo; i < hi; i++) {
+            count[digitAt(a[i], d) + 2]++;
+        }
+        for (int r = 0; r < RADIX + 1; r++) {
+            count[r + 1] += count[r];
+        }
+        for (int i = lo; i < hi; i++) {
+            aux[lo + count[digitAt(a[i], d) + 1]++] = a[i];
+        }
+        System.arraycopy(aux, lo, a, lo, hi - lo);
+        // After the scatter count[b] is the end of bucket b, shift to get starts
+        int[] starts = new int[RADIX + 2];
+        starts[0] = lo;
+        for (int b = 0; b <= RADIX; b++) {
+            starts[b + 1] = lo + count[b];
+        }
+        return starts;
+    }
+
+    // Keys in the range share their first d digits, so comparison starts at that char
+    private static long insertionSort(String[] a, int lo, int hi, int d) {
+        long comparisons = 0;
+        int from = d >>> 1;
+        for (int i = lo + 1; i < hi; i++) {
+            String key = a[i];
+            int j = i - 1;
+            while (j >= lo) {
+                comparisons++;
+                if (compareFrom(a[j], key, from) <= 0) {
+                    break;
+                }
+                a[j + 1] = a[j];
+                j--;
+            }
+            a[j + 1] = key;
+        }
+        return comparisons;
+    }
+
+    private static int compareFrom(String x, String y, int from) {
+        int n = Math.min(x.length(), y.length());
+        for (int i = from; i < n; i++) {
+            char cx = x.charAt(i), cy = y.charAt(i);
+            if (cx != cy) {
+                return cx - cy;
+            }
+        }
+        return x.length() - y.length();
+    }
+}
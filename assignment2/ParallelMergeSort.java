@@ -0,0 +1,167 @@
+import java.util.concurrent.*;
+
+// Fork-join merge sort over a String[].
+// Halves are sorted in parallel, alternating between the input and one auxiliary array so
+// no level copies data back, and large merges are themselves split across workers.
+// Comparisons are tallied per task and summed on the way back up, so no counter is shared.
+public class ParallelMergeSort implements ItemSorter {
+
+    private static final int INSERTION_SORT_CUTOFF = 16;
+    private static final int SEQUENTIAL_CUTOFF = 1 << 13;
+
+    private final ForkJoinPool pool;
+
+    public ParallelMergeSort() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ParallelMergeSort(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public void sort(String[] items, int[] comparisonCount) {
+        if (items.length < 2) {
+            return;
+        }
+        String[] aux = items.clone();
+        long comparisons = pool.invoke(new SortTask(aux, items, 0, items.length));
+        ItemSorter.addComparisons(comparisonCount, comparisons);
+    }
+
+    // Sorts src[lo, hi) into dst[lo, hi); both arrays hold the same data for the range on entry
+    private static class SortTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final String[] src, dst;
+        private final int lo, hi;
+
+        SortTask(String[] src, String[] dst, int lo, int hi) {
+            this.src = src;
+            this.dst = dst;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected Long compute() {
+            if (hi - lo <= SEQUENTIAL_CUTOFF) {
+                return sequentialSort(src, dst, lo, hi);
+            }
+            int mid = (lo + hi) >>> 1;
+            SortTask left = new SortTask(dst, src, lo, mid);
+            SortTask right = new SortTask(dst, src, mid, hi);
+            left.fork();
+            long comparisons = right.compute() + left.join();
+            return comparisons + new MergeTask(src, dst, lo, mid, mid, hi, lo).compute();
+        }
+    }
+
+    private static long sequentialSort(String[] src, String[] dst, int lo, int hi) {
+        if (hi - lo <= INSERTION_SORT_CUTOFF) {
+            return insertionSort(dst, lo, hi);
+        }
+        int mid = (lo + hi) >>> 1;
+        long comparisons = sequentialSort(dst, src, lo, mid) + sequentialSort(dst, src, mid, hi);
+        return comparisons + merge(src, dst, lo, mid, mid, hi, lo);
+    }
+
+    private static long insertionSort(String[] a, int lo, int hi) {
+        long comparisons = 0;
+        for (int i = lo + 1; i < hi; i++) {
+            String key = a[i];
+            int j = i - 1;
+            while (j >= lo) {
+                comparisons++;
+                if (a[j].compareTo(key) <= 0) {
+                    break;
+                }
+                a[j + 1] = a[j];
+                j--;
+            }
+            a[j + 1] = key;
+        }
+        return comparisons;
+    }
+
+    // Stable merge of src[lo1, hi1) and src[lo2, hi2) into dst starting at out
+    private static long merge(String[] src, String[] dst, int lo1, int hi1, int lo2, int hi2, int out) {
+        long comparisons = 0;
+        if (lo1 < hi1 && lo2 < hi2) {
+            // Runs that are already in order only need a copy
+            comparisons++;
+            if (src[hi1 - 1].compareTo(src[lo2]) <= 0) {
+                System.arraycopy(src, lo1, dst, out, hi1 - lo1);
+                System.arraycopy(src, lo2, dst, out + hi1 - lo1, hi2 - lo2);
+                return comparisons;
+            }
+        }
+        int i = lo1, j = lo2;
+        while (i < hi1 && j < hi2) {
+            comparisons++;
+            if (src[j].compareTo(src[i]) < 0) {
+                dst[out++] = src[j++];
+            } else {
+                dst[out++] = src[i++];
+            }
+        }
+        System.arraycopy(src, i, dst, out, hi1 - i);
+        System.arraycopy(src, j, dst, out + hi1 - i, hi2 - j);
+        return comparisons;
+    }
+
+    // Splits a large merge around the median of the bigger run so both halves merge in parallel
+    private static class MergeTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final String[] src, dst;
+        private final int lo1, hi1, lo2, hi2, out;
+
+        MergeTask(String[] src, String[] dst, int lo1, int hi1, int lo2, int hi2, int out) {
+            this.src = src;
+            this.dst = dst;
+            this.lo1 = lo1;
+            this.hi1 = hi1;
+            this.lo2 = lo2;
+            this.hi2 = hi2;
+            this.out = out;
+        }
+
+        @Override
+        protected Long compute() {
+            int n1 = hi1 - lo1, n2 = hi2 - lo2;
+            if (n1 + n2 <= SEQUENTIAL_CUTOFF) {
+                return merge(src, dst, lo1, hi1, lo2, hi2, out);
+            }
+            long comparisons = 0;
+            int split1, split2;
+            if (n1 >= n2) {
+                // Elements of the right run equal to the pivot must stay after it for stability
+                split1 = (lo1 + hi1) >>> 1;
+                int lo = lo2, hi = hi2;
+                while (lo < hi) {
+                    int m = (lo + hi) >>> 1;
+                    comparisons++;
+                    if (src[m].compareTo(src[split1]) < 0) lo = m + 1; else hi = m;
+                }
+                split2 = lo;
+            } else {
+                // Elements of the left run equal to the pivot must stay before it
+                split2 = (lo2 + hi2) >>> 1;
+                int lo = lo1, hi = hi1;
+                while (lo < hi) {
+                    int m = (lo + hi) >>> 1;
+                    comparisons++;
+                    if (src[m].compareTo(src[split2]) <= 0) lo = m + 1; else hi = m;
+                }
+                split1 = lo;
+            }
+            int rightOut = out + (split1 - lo1) + (split2 - lo2);
+            MergeTask left = new MergeTask(src, dst, lo1, split1, lo2, split2, out);
+            MergeTask right = new MergeTask(src, dst, split1, hi1, split2, hi2, rightOut);
+            left.fork();
+            comparisons += right.compute();
+            return comparisons + left.join();
+        }
+    }
+}
@@ -0,0 +1,278 @@
+import java.util.*;
+
+// Compacted trie (radix tree) over item names for prefix queries and autocomplete.
+// Each edge carries a run of characters rather than one, so a chain of single-child nodes
+// collapses into one node and the tree has at most about two nodes per item. Children are kept
+// in arrays sorted by their first character and found by binary search.
+//
+// Lookups walk the prefix once and then only the subtree below it, so their cost depends on the
+// prefix length and result count, not the catalog size. Every node touched is added to nodeVisits.
+public class PrefixIndex {
+
+    private static class Node {
+        String label; // characters on the edge into this node
+        char[] firsts = new char[0]; // first character of each child label, sorted
+        Node[] children = new Node[0];
+        int childCount;
+        String item; // original item name if an item ends here, otherwise null
+        String[] otherSpellings; // further names with the same key (ignoreCase only), or null
+        long weight; // weight of the item ending here
+        long maxWeight = Long.MIN_VALUE; // highest item weight in this subtree
+        int rank; // preorder position, used to keep equal weights in name order
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        boolean hasSpelling(String name) {
+            if (item.equals(name)) {
+                return true;
+            }
+            return otherSpellings != null && Arrays.asList(otherSpellings).contains(name);
+        }
+
+        int childIndex(char c) {
+            return Arrays.binarySearch(firsts, 0, childCount, c);
+        }
+
+        void insertChild(int at, Node child) {
+            if (childCount == children.length) {
+                int capacity = Math.max(2, childCount * 2);
+                firsts = Arrays.copyOf(firsts, capacity);
+                children = Arrays.copyOf(children, capacity);
+            }
+            System.arraycopy(firsts, at, firsts, at + 1, childCount - at);
+            System.arraycopy(children, at, children, at + 1, childCount - at);
+            firsts[at] = child.label.charAt(0);
+            children[at] = child;
+            childCount++;
+        }
+    }
+
+    // Entry in complete's best-first queue: a whole subtree, keyed by its best weight, or the
+    // single item ending at the node, keyed by its own weight
+    private static final class Candidate {
+        // Heaviest first, then name order, and an item before its own subtree
+        static final Comparator<Candidate> ORDER = Comparator
+                .comparingLong((Candidate c) -> c.weight).reversed()
+                .thenComparingInt(c -> c.node.rank)
+                .thenComparing(c -> !c.isItem);
+
+        final Node node;
+        final long weight;
+        final boolean isItem;
+
+        Candidate(Node node, long weight, boolean isItem) {
+            this.node = node;
+            this.weight = weight;
+            this.isItem = isItem;
+        }
+    }
+
+    private final Node root = new Node("");
+    private final boolean ignoreCase;
+    private int size;
+    private boolean ranksValid;
+
+    public PrefixIndex() {
+        this(false);
+    }
+
+    // With ignoreCase set, names and prefixes are matched lowercased but results keep their case
+    public PrefixIndex(boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+    }
+
+    public static PrefixIndex build(List<String> items, boolean ignoreCase) {
+        PrefixIndex index = new PrefixIndex(ignoreCase);
+        for (String item : items) {
+            index.add(item, 0);
+        }
+        return index;
+    }
+
+    private String key(String str) {
+        return ignoreCase ? str.toLowerCase(Locale.ROOT) : str;
+    }
+
+    // Adds an item with a ranking weight for complete(); re-adding keeps the larger weight.
+    // With ignoreCase, names differing only in case share a node (and its weight), but every
+    // spelling is kept, counted by size() and returned, in the order they were added.
+    public void add(String item, long weight) {
+        String key = key(item);
+        Node node = root;
+        List<Node> path = new ArrayList<>();
+        path.add(node);
+        int pos = 0;
+        while (pos < key.length()) {
+            int at = node.childIndex(key.charAt(pos));
+            if (at < 0) {
+                Node leaf = new Node(key.substring(pos));
+                node.insertChild(-at - 1, leaf);
+                node = leaf;
+                pos = key.length();
+            } else {
+                Node child = node.children[at];
+                String label = child.label;
+                int common = 1;
+                while (common < label.length() && pos + common < key.length()
+                        && label.charAt(common) == key.charAt(pos + common)) {
+                    common++;
+                }
+                if (common < label.length()) {
+                    // Split the edge where the key leaves it
+                    Node split = new Node(label.substring(0, common));
+                    child.label = label.substring(common);
+                    split.insertChild(0, child);
+                    split.maxWeight = child.maxWeight;
+                    node.children[at] = split;
+                    child = split;
+                }
+                node = child;
+                pos += common;
+            }
+            path.add(node);
+        }
+
+        if (node.item == null) {
+            node.item = item;
+            node.weight = weight;
+            size++;
+        } else {
+            if (!node.hasSpelling(item)) {
+                // Same key in another case: kept beside the first spelling, sharing its weight
+                String[] others = node.otherSpellings == null ? new String[0] : node.otherSpellings;
+                node.otherSpellings = Arrays.copyOf(others, others.length + 1);
+                node.otherSpellings[others.length] = item;
+                size++;
+            }
+            node.weight = Math.max(node.weight, weight);
+        }
+        for (Node n : path) {
+            n.maxWeight = Math.max(n.maxWeight, node.weight);
+        }
+        ranksValid = false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Walks down to the node whose subtree holds every key with the prefix, or null
+    private Node locate(String prefix, int[] nodeVisits) {
+        Node node = root;
+        nodeVisits[0]++;
+        int pos = 0;
+        while (pos < prefix.length()) {
+            int at = node.childIndex(prefix.charAt(pos));
+            if (at < 0) {
+                return null;
+            }
+            node = node.children[at];
+            nodeVisits[0]++;
+            String label = node.label;
+            int n = Math.min(label.length(), prefix.length() - pos);
+            if (!label.regionMatches(0, prefix, pos, n)) {
+                return null;
+            }
+            pos += n;
+        }
+        return node;
+    }
+
+    public boolean contains(String item, int[] nodeVisits) {
+        String key = key(item);
+        Node node = locate(key, nodeVisits);
+        // The prefix may end partway down an edge, only a whole-label match is the item itself
+        return node != null && node.item != null && key(node.item).equals(key);
+    }
+
+    // All items starting with the prefix, in name order
+    public List<String> startingWith(String prefix, int[] nodeVisits) {
+        List<String> results = new ArrayList<>();
+        Node start = locate(key(prefix), nodeVisits);
+        if (start != null) {
+            collect(start, Integer.MAX_VALUE, results, nodeVisits);
+        }
+        return results;
+    }
+
+    // First `limit` items in name order below a node, depth first without recursion
+    private static void collect(Node start, int limit, List<String> results, int[] nodeVisits) {
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(start);
+        while (!stack.isEmpty() && results.size() < limit) {
+            Node node = stack.pop();
+            if (node != start) {
+                nodeVisits[0]++;
+            }
+            if (node.item != null) {
+                addSpellings(node, limit, results);
+            }
+            for (int i = node.childCount - 1; i >= 0; i--) {
+                stack.push(node.children[i]);
+            }
+        }
+    }
+
+    // The item ending at the node, then any other spellings of it, up to limit results
+    private static void addSpellings(Node node, int limit, List<String> results) {
+        results.add(node.item);
+        if (node.otherSpellings != null) {
+            for (int i = 0; i < node.otherSpellings.length && results.size() < limit; i++) {
+                results.add(node.otherSpellings[i]);
+            }
+        }
+    }
+
+    // Top k completions of the prefix by weight, ties broken by name order.
+    // Best-first search that only expands subtrees whose best weight can still make the list.
+    public List<String> complete(String prefix, int k, int[] nodeVisits) {
+        List<String> results = new ArrayList<>();
+        Node start = locate(key(prefix), nodeVisits);
+        if (start == null || k <= 0) {
+            return results;
+        }
+        ensureRanks();
+
+        PriorityQueue<Candidate> queue = new PriorityQueue<>(Candidate.ORDER);
+        queue.add(new Candidate(start, start.maxWeight, false));
+        while (!queue.isEmpty() && results.size() < k) {
+            Candidate entry = queue.poll();
+            Node node = entry.node;
+            if (entry.isItem) {
+                addSpellings(node, k, results);
+                continue;
+            }
+            if (node != start) {
+                nodeVisits[0]++;
+            }
+            if (node.item != null) {
+                queue.add(new Candidate(node, node.weight, true));
+            }
+            for (int i = 0; i < node.childCount; i++) {
+                Node child = node.children[i];
+                queue.add(new Candidate(child, child.maxWeight, false));
+            }
+        }
+        return results;
+    }
+
+    // Numbers nodes in preorder, which is name order, after any insert since the last query
+    private void ensureRanks() {
+        if (ranksValid) {
+            return;
+        }
+        int next = 0;
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            node.rank = next++;
+            for (int i = node.childCount - 1; i >= 0; i--) {
+                stack.push(node.children[i]);
+            }
+        }
+        ranksValid = true;
+    }
+}
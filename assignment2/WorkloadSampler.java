@@ -0,0 +1,198 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+// Seedable sampling and shuffling for building search workloads.
+// Sampling reads the catalog once as a stream, so a query list can be drawn from a file that
+// is never held in memory. Every method takes a SplittableRandom, so a fixed seed gives the
+// same workload on every run, including the parallel shuffle.
+public class WorkloadSampler {
+
+    private static final int SEQUENTIAL_SHUFFLE_CUTOFF = 1 << 16;
+
+    private WorkloadSampler() {
+    }
+
+    // Uniform sample of `count` distinct entries (Algorithm L reservoir sampling).
+    // Skips ahead geometrically, so past the first `count` items the random draws grow only with
+    // count * log(n / count). For a file, pass Files.lines(path).iterator().
+    public static List<String> reservoirSample(Iterator<String> items, int count, SplittableRandom random) {
+        List<String> reservoir = new ArrayList<>(count);
+        if (count <= 0) {
+            return reservoir;
+        }
+        while (reservoir.size() < count && items.hasNext()) {
+            reservoir.add(items.next());
+        }
+        if (reservoir.size() < count) {
+            return reservoir;
+        }
+
+        double w = Math.exp(Math.log(random.nextDouble()) / count);
+        while (true) {
+            long skip = (long) Math.floor(Math.log(random.nextDouble()) / Math.log(1 - w));
+            for (long i = 0; i < skip; i++) {
+                if (!items.hasNext()) {
+                    return reservoir;
+                }
+                items.next();
+            }
+            if (!items.hasNext()) {
+                return reservoir;
+            }
+            reservoir.set(random.nextInt(count), items.next());
+            w *= Math.exp(Math.log(random.nextDouble()) / count);
+        }
+    }
+
+    // Sample of `count` entries drawn with replacement. A RandomAccess list (an ArrayList, a
+    // MappedCatalog view) takes `count` indexed draws without looking at the other entries; any
+    // other list is streamed through the single-pass sampler below.
+    public static List<String> sampleWithReplacement(List<String> items, int count, SplittableRandom random) {
+        if (!(items instanceof RandomAccess)) {
+            return sampleWithReplacement(items.iterator(), count, random);
+        }
+        List<String> sample = new ArrayList<>(Math.max(0, count));
+        if (items.isEmpty()) {
+            return sample;
+        }
+        for (int i = 0; i < count; i++) {
+            sample.add(items.get(random.nextInt(items.size())));
+        }
+        return sample;
+    }
+
+    // Sample of `count` entries drawn with replacement, like the List version, but from a
+    // single pass over a stream of unknown size. Each slot is its own size-one reservoir. After item t
+    // a slot next changes at item floor(t / u) + 1 for uniform u, so slots wait in a queue ordered
+    // by that time and most items are skipped without drawing any random numbers.
+    public static List<String> sampleWithReplacement(Iterator<String> items, int count, SplittableRandom random) {
+        List<String> sample = new ArrayList<>();
+        if (count <= 0 || !items.hasNext()) {
+            return sample;
+        }
+        String[] slots = new String[count];
+        Arrays.fill(slots, items.next());
+        PriorityQueue<long[]> pending = new PriorityQueue<>(count, Comparator.comparingLong(entry -> entry[0]));
+        for (int i = 0; i < count; i++) {
+            pending.add(new long[]{nextReplacement(1, random), i});
+        }
+
+        long seen = 1;
+        while (items.hasNext()) {
+            String item = items.next();
+            seen++;
+            while (pending.peek()[0] == seen) {
+                long[] entry = pending.poll();
+                slots[(int) entry[1]] = item;
+                entry[0] = nextReplacement(seen, random);
+                pending.add(entry);
+            }
+        }
+        sample.addAll(Arrays.asList(slots));
+        return sample;
+    }
+
+    private static long nextReplacement(long seen, SplittableRandom random) {
+        double u = 1.0 - random.nextDouble(); // in (0, 1]
+        double next = Math.floor(seen / u) + 1;
+        return next >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) next;
+    }
+
+    // Fisher-Yates shuffle directly on an array
+    public static <T> void shuffle(T[] items, SplittableRandom random) {
+        shuffle(items, 0, items.length, random);
+    }
+
+    private static <T> void shuffle(T[] items, int from, int to, SplittableRandom random) {
+        for (int i = to - 1; i > from; i--) {
+            int j = from + random.nextInt(i - from + 1);
+            T tmp = items[i];
+            items[i] = items[j];
+            items[j] = tmp;
+        }
+    }
+
+    // Uniform shuffle for large arrays using every core.
+    // Each element is first sent to a random bucket (workers scatter their own blocks of the
+    // array), then every bucket gets an independent Fisher-Yates shuffle and the buckets are
+    // laid back end to end. Random bucket sizes plus a uniform order inside each bucket give
+    // a uniform permutation of the whole array.
+    public static <T> void parallelShuffle(T[] items, SplittableRandom random) {
+        int n = items.length;
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        if (n < SEQUENTIAL_SHUFFLE_CUTOFF || parallelism < 2) {
+            shuffle(items, random);
+            return;
+        }
+        int buckets = Math.min(256, parallelism * 4); // bucket numbers are kept in a byte
+        int blocks = parallelism * 4;
+        int blockSize = (n + blocks - 1) / blocks;
+
+        // Split the generators up front, in order, so the result depends only on the seed
+        SplittableRandom[] blockRandoms = new SplittableRandom[blocks];
+        SplittableRandom[] bucketRandoms = new SplittableRandom[buckets];
+        for (int b = 0; b < blocks; b++) {
+            blockRandoms[b] = random.split();
+        }
+        for (int b = 0; b < buckets; b++) {
+            bucketRandoms[b] = random.split();
+        }
+
+        // Phase one: every block picks a bucket for each of its elements and counts them
+        byte[] target = new byte[n];
+        int[][] counts = new int[blocks][buckets];
+        parallelFor(blocks, block -> {
+            int from = block * blockSize, to = Math.min(n, from + blockSize);
+            SplittableRandom r = blockRandoms[block];
+            for (int i = from; i < to; i++) {
+                int bucket = r.nextInt(buckets);
+                target[i] = (byte) bucket;
+                counts[block][bucket]++;
+            }
+        });
+
+        // Bucket b takes the slots after all earlier buckets, and within it block k writes after blocks < k
+        int[] bucketStarts = new int[buckets + 1];
+        int[][] writeAt = new int[blocks][buckets];
+        int position = 0;
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            bucketStarts[bucket] = position;
+            for (int block = 0; block < blocks; block++) {
+                writeAt[block][bucket] = position;
+                position += counts[block][bucket];
+            }
+        }
+        bucketStarts[buckets] = n;
+
+        Object[] scattered = new Object[n];
+        parallelFor(blocks, block -> {
+            int from = block * blockSize, to = Math.min(n, from + blockSize);
+            int[] next = writeAt[block];
+            for (int i = from; i < to; i++) {
+                scattered[next[target[i] & 0xFF]++] = items[i];
+            }
+        });
+
+        // Phase two: shuffle each bucket on its own and copy it back into place
+        parallelFor(buckets, bucket -> {
+            int from = bucketStarts[bucket], to = bucketStarts[bucket + 1];
+            shuffle(scattered, from, to, bucketRandoms[bucket]);
+            System.arraycopy(scattered, from, items, from, to - from);
+        });
+    }
+
+    private interface IndexTask {
+        void run(int index);
+    }
+
+    private static void parallelFor(int count, IndexTask task) {
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            tasks.add(ForkJoinPool.commonPool().submit(() -> task.run(index)));
+        }
+        for (ForkJoinTask<?> t : tasks) {
+            t.join();
+        }
+    }
+}
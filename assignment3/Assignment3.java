@@ -1,365 +1,248 @@
 import java.io.*;
+import java.nio.file.Paths;
 import java.util.*;
 
 public class Assignment3 {
 
-    // Vertex class for the linked objects representation
-    static class Vertex {
-        String id; // ID of the vertex
-        boolean processed; // Whether the vertex is processed
-        List<Vertex> neighbors; // List of neighboring vertices
-
-        Vertex(String id) {
-            this.id = id;
-            this.processed = false;
-            this.neighbors = new ArrayList<>();
-        }
-
-        void addNeighbor(Vertex neighbor) {
-            this.neighbors.add(neighbor);
-        }
+    // Opt-in instrumentation, see Metrics
+    private static final Metrics.Timer GRAPH_TIME = Metrics.timer("graphs.graph", true);
+    private static final Metrics.Timer DFS_TIME = Metrics.timer("graphs.dfs");
+    private static final Metrics.Timer BFS_TIME = Metrics.timer("graphs.bfs");
+    private static final Metrics.Counter GRAPHS = Metrics.counter("graphs.count");
+    private static final Metrics.Timer BST_INSERT_TIME = Metrics.timer("bst.insert");
+    private static final Metrics.Timer BST_FIND_TIME = Metrics.timer("bst.find");
+    private static final Metrics.Histogram BST_FIND_COMPARISONS = Metrics.histogram("bst.find.comparisons", "comparisons");
+    private static final Metrics.Counter BST_MISSES = Metrics.counter("bst.find.misses");
+    private static final Metrics.Histogram FILTER_PROBES = Metrics.histogram("bst.filter.probes", "probes");
+    private static final Metrics.Counter FILTER_REJECTIONS = Metrics.counter("bst.filter.rejections");
+
+    // BFS engine: unset for the sequential one, "deterministic" for the parallel BFS that gives
+    // the same order, or "fast" for direction-optimizing parallel BFS (order within a level may vary)
+    private static final String PARALLEL_BFS = System.getProperty("assignment3.parallelBfs");
+
+    // Vertex ids are numbers, listings and traversals visit them in numeric order
+    static final Comparator<String> NUMERIC_ORDER = Comparator.comparingInt(Integer::parseInt);
+
+    // Each graph is built once as a CSR graph: ids interned to dense ints (which are also the
+    // matrix indexes), duplicate edges dropped and neighbors sorted numerically at build time
+    private static CsrGraph.Builder newGraph() {
+        return new CsrGraph.Builder(false, false).dedupe(true).sortNeighbors(NUMERIC_ORDER);
     }
 
-    // Method to process the file and create adjacency matrix, adjacency list, and linked objects version
-    public static void processGraphs(String fileName) {
-        try (BufferedReader br = new BufferedReader(new FileReader(fileName))) {
-            String line;
-            boolean isNewGraph = false; // Tracks whether a new graph has started
-            Map<String, Integer> vertexMap = new HashMap<>();
-            // Maps each vertex ID (String) to a unique integer index used in the adjacency matrix.
-            Map<String, TreeSet<String>> adjacencyList = new HashMap<>(); // Stores adjacency list for the graph
-            Map<String, Vertex> linkedGraph = new HashMap<>(); // Linked objects representation
-            int vertexCount = 0; // Keeps track of the total number of vertices in the current graph
-            int[][] adjacencyMatrix = null; // The adjacency matrix for the current graph
+    // Run with -Dassignment3.components=true to also print how many connected components each
+    // graph has. They come from a union-find the parser feeds with every add edge line.
+    private static final boolean COMPONENTS = Boolean.getBoolean("assignment3.components");
 
-            System.out.println("Adjacency Representations for Graphs");
+    // Graph files are cut at each "new graph" and the graphs are built and printed in parallel,
+    // output still in file order
+    private static final GraphFileParser PARSER =
+            new GraphFileParser(Assignment3::newGraph, false).trackComponents(COMPONENTS);
 
-            // Read the file line by line
-            while ((line = br.readLine()) != null) {
-                line = line.trim();
-
-                // Check if a new graph starts
-                if (line.startsWith("new graph")) {
-                    if (isNewGraph) {
-                        // Print the adjacency matrix if there is a previous graph
-                        System.out.println("\nGraph:");
-                        printMatrix(adjacencyMatrix, vertexMap);
-                        System.out.println("\nAdjacency List:");
-                        printAdjacencyList(adjacencyList);
-                        System.out.println("\nLinked Objects Traversals:");
-                        performTraversals(linkedGraph);
-                    }
-                    // Initialize for the new graph
-                    isNewGraph = true;
-                    vertexMap.clear(); // Clear the vertex map for the new graph
-                    adjacencyList.clear(); // Clear the adjacency list for the new graph
-                    linkedGraph.clear(); // Clear the linked graph for the new graph
-                    vertexCount = 0; // Reset vertex count
-                    adjacencyMatrix = null; // Reset adjacency matrix
-                } else if (line.startsWith("add vertex")) {
-                    // Parse and add a vertex
-                    String vertexId = line.replace("add vertex", "").trim();
-
-                    // Check if the vertex is not already added
-                    if (!vertexMap.containsKey(vertexId)) {
-                        vertexMap.put(vertexId, vertexCount); // Map vertex ID to the current matrix index
-                        // Initialize adjacency list with numerical sorting
-                        adjacencyList.put(vertexId, new TreeSet<>(Comparator.comparingInt(Integer::parseInt)));
-                        linkedGraph.put(vertexId, new Vertex(vertexId)); // Add vertex to linked graph
-                        vertexCount++; // Increment the vertex count
-
-                        // Resize the adjacency matrix to accommodate the new vertex
-                        adjacencyMatrix = resizeMatrix(adjacencyMatrix, vertexCount);
-                    }
-                } else if (line.startsWith("add edge")) {
-                    // Parse and add an edge
-                    String[] parts = line.replace("add edge", "").split("-");
-                    String u = parts[0].trim(); // Get vertex ID for u
-                    String v = parts[1].trim(); // Get vertex ID for v
-
-                    // Check if both vertices are valid
-                    if (vertexMap.containsKey(u) && vertexMap.containsKey(v)) {
-                        int uIndex = vertexMap.get(u); // Get the matrix index for vertex u
-                        int vIndex = vertexMap.get(v); // Get the matrix index for vertex v
-
-                        // Add both directions in matrix
-                        adjacencyMatrix[uIndex][vIndex] = 1;
-                        adjacencyMatrix[vIndex][uIndex] = 1;
-
-                        // Add both directions in the adjacency list
-                        adjacencyList.get(u).add(v);
-                        adjacencyList.get(v).add(u);
-
-                        // Add edge to linked graph
-                        linkedGraph.get(u).addNeighbor(linkedGraph.get(v));
-                        linkedGraph.get(v).addNeighbor(linkedGraph.get(u));
-                    } else {
-                        // Print an error if the edge references undefined vertices
-                        System.err.println("Invalid edge with undefined vertices: " + line);
-                    }
-                }
-            }
+    // Run with -Dassignment3.snapshot=true to keep a binary copy of the parsed graphs next to the
+    // file (graphs1.txt.snapshot) and map it on later runs instead of parsing the text
+    private static final boolean SNAPSHOT = Boolean.getBoolean("assignment3.snapshot");
 
-            // Print the adjacency matrix of the last graph
-            if (isNewGraph) {
-                System.out.println("\nGraph:");
-                printMatrix(adjacencyMatrix, vertexMap);
-                System.out.println("\nAdjacency List:");
-                printAdjacencyList(adjacencyList);
-                System.out.println("\nLinked Objects Traversals:");
-                performTraversals(linkedGraph);
-            }
+    // Method to process the file and create the adjacency matrix and CSR graph for each graph
+    public static void processGraphs(String fileName) {
+        try (InputStream in = new FileInputStream(fileName)) {
+            System.out.println("Adjacency Representations for Graphs");
+            PARSER.process(in, SNAPSHOT ? Paths.get(fileName) : null, Assignment3::printGraph);
         } catch (IOException e) {
             // Handle any errors that occur during file reading
             System.err.println("Error reading the file: " + e.getMessage());
         }
     }
 
-    // Method resize the adjacency matrix when a new vertex is added
-    private static int[][] resizeMatrix(int[][] oldMatrix, int newSize) {
-        int[][] newMatrix = new int[newSize][newSize];
+    // Prints every representation of one graph
+    private static void printGraph(CsrGraph graph, UnionFind components, PrintStream out) {
+        Metrics.Span span = GRAPH_TIME.start();
+        GRAPHS.increment();
 
-        if (oldMatrix != null) {
-            for (int i = 0; i < oldMatrix.length; i++) {
-                System.arraycopy(oldMatrix[i], 0, newMatrix[i], 0, oldMatrix[i].length);
+        // The matrix uses the graph's dense indexes, so every CSR edge slot is one cell
+        BitMatrix adjacencyMatrix = new BitMatrix();
+        for (int v = 0; v < graph.vertexCount(); v++) {
+            adjacencyMatrix.addVertex();
+        }
+        for (int v = 0; v < graph.vertexCount(); v++) {
+            for (int e = graph.begin(v); e < graph.end(v); e++) {
+                adjacencyMatrix.set(v, graph.target(e));
             }
         }
-        return newMatrix;
+
+        out.println("\nGraph:");
+        printMatrix(adjacencyMatrix, graph, out);
+        out.println("\nAdjacency List:");
+        printAdjacencyList(graph, out);
+        out.println("\nLinked Objects Traversals:");
+        performTraversals(graph, out);
+        if (components != null) {
+            out.println("Connected Components: " + components.componentCount());
+        }
+        span.stop();
     }
 
-    // Method to print the adjacency matrix
-    private static void printMatrix(int[][] matrix, Map<String, Integer> vertexMap) {
-        if (matrix == null || vertexMap.isEmpty()) {
-            System.out.println("No data for this graph.");
+    // Method to print the adjacency matrix, rows and columns in the order vertices were added
+    private static void printMatrix(BitMatrix matrix, CsrGraph graph, PrintStream out) {
+        if (matrix.size() == 0) {
+            out.println("No data for this graph.");
             return;
         }
 
-        int size = matrix.length;
+        int size = matrix.size();
 
-        // Convert the vertex map into an array where each index corresponds to a vertex ID.
-        String[] vertexIds = new String[size];
-        for (Map.Entry<String, Integer> entry : vertexMap.entrySet()) {
-            vertexIds[entry.getValue()] = entry.getKey();
-        }
-
-        // Initial spacing for column headers
-        System.out.print("    ");
+        // Column headers after the initial spacing, fixed width
+        StringBuilder row = new StringBuilder("    ");
         for (int i = 0; i < size; i++) {
-            System.out.printf("%4s", vertexIds[i]); // Fixed width for column headers
+            row.append(String.format("%4s", graph.id(i)));
         }
-        System.out.println();
+        out.println(row);
 
-        // Print matrix rows with row headers
+        // Each row is built whole, walking its set bits instead of testing every cell
         for (int i = 0; i < size; i++) {
-            // Print row header
-            System.out.printf("%4s", vertexIds[i]);
-
-            for (int j = 0; j < size; j++) {
-                // 1 for edge, . for no edge
-                if (matrix[i][j] == 1) {
-                    System.out.print("   1");
-                } else {
-                    System.out.print("   .");
+            row.setLength(0);
+            row.append(String.format("%4s", graph.id(i))); // Row header
+            int column = 0;
+            for (int j = matrix.nextSetColumn(i, 0); j != -1; j = matrix.nextSetColumn(i, j + 1)) {
+                for (; column < j; column++) {
+                    row.append("   ."); // . for no edge
                 }
+                row.append("   1"); // 1 for edge
+                column = j + 1;
             }
-            System.out.println(); // Move to the next row
+            for (; column < size; column++) {
+                row.append("   .");
+            }
+            out.println(row);
         }
     }
 
-    // Method to print the adjacency list
-    private static void printAdjacencyList(Map<String, TreeSet<String>> adjacencyList) {
-        if (adjacencyList.isEmpty()) {
-            System.out.println("No data for this graph.");
+    // Method to print the adjacency list, vertices and their neighbors in numeric order
+    private static void printAdjacencyList(CsrGraph graph, PrintStream out) {
+        if (graph.vertexCount() == 0) {
+            out.println("No data for this graph.");
             return;
         }
 
-        // Sort keys (vertices) numerically
-        List<String> sortedKeys = new ArrayList<>(adjacencyList.keySet());
-        sortedKeys.sort(Comparator.comparingInt(Integer::parseInt));
-
-        // Iterate through each vertex in the adjacency list
-        for (String key : sortedKeys) {
-            System.out.print(key + ": ");
-            System.out.println(String.join(", ", adjacencyList.get(key)));
+        for (int v : graph.verticesInOrder(NUMERIC_ORDER)) {
+            StringBuilder row = new StringBuilder(graph.id(v)).append(": ");
+            for (int e = graph.begin(v); e < graph.end(v); e++) {
+                if (e > graph.begin(v)) {
+                    row.append(", ");
+                }
+                row.append(graph.id(graph.target(e)));
+            }
+            out.println(row);
         }
     }
 
-    // Perform depth-first and breadth-first traversals on the linked graph
-    private static void performTraversals(Map<String, Vertex> linkedGraph) {
-        if (linkedGraph.isEmpty()) {
-            System.out.println("No data for linked objects traversal.");
+    // Perform depth-first and breadth-first traversals on the graph
+    private static void performTraversals(CsrGraph graph, PrintStream out) {
+        if (graph.vertexCount() == 0) {
+            out.println("No data for linked objects traversal.");
             return;
         }
 
+        // Start each traversal from the unvisited vertex with the smallest id
+        int[] startOrder = graph.verticesInOrder(NUMERIC_ORDER);
+
         // Perform depth-first traversal
-        System.out.println("Depth-First Traversal:");
-        Set<String> visited = new HashSet<>();
-        // Sort the keys numerically to start traversal in order
-        List<String> sortedKeys = new ArrayList<>(linkedGraph.keySet());
-        sortedKeys.sort(Comparator.comparingInt(Integer::parseInt));
-        for (String key : sortedKeys) {
-            if (!visited.contains(key)) {
-                depthFirstTraversal(linkedGraph.get(key), visited);
-            }
-        }
-        System.out.println();
+        out.println("Depth-First Traversal:");
+        Metrics.Span span = DFS_TIME.start();
+        int[] order = Traversals.depthFirstOrder(graph, startOrder);
+        span.stop();
+        printOrder(graph, order, out);
 
         // Perform breadth-first traversal
-        System.out.println("Breadth-First Traversal:");
-        visited.clear();
-        for (String key : sortedKeys) {
-            if (!visited.contains(key)) {
-                breadthFirstTraversal(linkedGraph.get(key), visited);
-            }
-        }
-        System.out.println();
-    }
-
-    // Depth-first traversal using recursion
-    private static void depthFirstTraversal(Vertex vertex, Set<String> visited) {
-        if (!visited.add(vertex.id)) return;
-        System.out.print(vertex.id + " ");
-        // Sort neighbors numerically for consistent traversal order
-        vertex.neighbors.sort(Comparator.comparingInt(v -> Integer.parseInt(v.id)));
-        for (Vertex neighbor : vertex.neighbors) {
-            if (!visited.contains(neighbor.id)) {
-                depthFirstTraversal(neighbor, visited);
-            }
-        }
-    }
-
-    // Breadth-first traversal using a queue
-    private static void breadthFirstTraversal(Vertex startVertex, Set<String> visited) {
-        Queue<Vertex> queue = new LinkedList<>();
-        queue.add(startVertex);
-        visited.add(startVertex.id);
-
-        while (!queue.isEmpty()) {
-            Vertex current = queue.poll();
-            System.out.print(current.id + " ");
-            // Sort neighbors numerically for consistent traversal order
-            current.neighbors.sort(Comparator.comparingInt(v -> Integer.parseInt(v.id)));
-            for (Vertex neighbor : current.neighbors) {
-                if (visited.add(neighbor.id)) {
-                    queue.add(neighbor);
-                }
-            }
-        }
-    }
- // Binary Search Tree Implementation
-static class BinarySearchTree {
-    // Node class representing each node in the BST
-    static class Node {
-        String value; // The value stored in the node
-        Node left, right; // Left and right children of the node
-
-        // Constructor to initialize a node with a value
-        Node(String value) {
-            this.value = value;
-            this.left = this.right = null;
-        }
-    }
-
-    private Node root; // Root of the BST
-
-    // Inserts a value into the BST and prints the path taken
-    public void insert(String value) {
-        StringBuilder path = new StringBuilder(); // Tracks the path to insertion
-        root = insertRecursive(root, value, path); // Recursive insertion
-        System.out.println("Inserted " + value + " with path: " + path); // Log the insertion
-    }
-
-    // Recursive helper method to insert a value into the BST
-    private Node insertRecursive(Node current, String value, StringBuilder path) {
-        if (current == null) { // Base case: Insert the value here if the spot is empty
-            return new Node(value);
-        }
-        // Compare value to decide whether to go left or right
-        if (value.compareTo(current.value) < 0) { // Go left if value is smaller
-            path.append("L, ");
-            current.left = insertRecursive(current.left, value, path);
-        } else if (value.compareTo(current.value) > 0) { // Go right if value is larger
-            path.append("R, ");
-            current.right = insertRecursive(current.right, value, path);
+        out.println("Breadth-First Traversal:");
+        span = BFS_TIME.start();
+        if (PARALLEL_BFS == null) {
+            order = Traversals.breadthFirstOrder(graph, startOrder);
+        } else {
+            boolean deterministic = !PARALLEL_BFS.equalsIgnoreCase("fast");
+            order = new ParallelBfs(deterministic).search(graph, startOrder).order;
         }
-        return current; // Return the unchanged node
-    }
-
-    // Performs an in-order traversal of the BST and prints the elements
-    public void inOrderTraversal() {
-        System.out.println("In-Order Traversal of BST:"); // Header for traversal output
-        inOrderRecursive(root); // Recursive traversal
-        System.out.println(); // End the output with a new line
-    }
-
-    // Recursive helper method for in-order traversal
-    private void inOrderRecursive(Node node) {
-        if (node == null) return; // Base case: Stop if the node is null
-        inOrderRecursive(node.left); // Visit left subtree
-        System.out.print(node.value + " "); // Print the node value
-        inOrderRecursive(node.right); // Visit right subtree
+        span.stop();
+        printOrder(graph, order, out);
     }
 
-    // Finds a value in the BST and prints the path and number of comparisons
-    public int find(String value) {
-        StringBuilder path = new StringBuilder(); // Tracks the path to the value
-        int comparisons = findRecursive(root, value, path, 0); // Recursive search
-        if (comparisons != -1) { // If the value is found
-            System.out.println("Found " + value + " with path: " + path + " in " + comparisons + " comparisons.");
-        } else { // If the value is not found
-            System.out.println(value + " not found in BST.");
+    // Prints the ids of a visit order on one line
+    private static void printOrder(CsrGraph graph, int[] order, PrintStream out) {
+        StringBuilder line = new StringBuilder();
+        for (int v : order) {
+            line.append(graph.id(v)).append(' ');
         }
-        return comparisons; // Return the number of comparisons made
+        out.println(line);
     }
-
-    // Recursive helper method to find a value in the BST
-    private int findRecursive(Node current, String value, StringBuilder path, int comparisons) {
-        if (current == null) return -1; // Base case: Value not found
-        comparisons++; // Increment the comparison count
-        if (value.equals(current.value)) return comparisons; // Value found
-        // Go left or right depending on the comparison
-        if (value.compareTo(current.value) < 0) {
-            path.append("L, ");
-            return findRecursive(current.left, value, path, comparisons);
-        } else {
-            path.append("R, ");
-            return findRecursive(current.right, value, path, comparisons);
+// Processes magic items by reading from a file and inserting them into the BST
+public static void processMagicItems(String fileName, AvlTree bst) {
+    try {
+        MappedCatalog catalog = MappedCatalog.open(fileName, true); // Trimmed entries, empty lines skipped
+        for (int i = 0; i < catalog.size(); i++) {
+            String item = catalog.get(i);
+            Metrics.Span span = BST_INSERT_TIME.start();
+            bst.insert(item); // Insert the item into the BST
+            span.stop();
         }
+        bst.inOrderTraversal(); // Perform in-order traversal to display BST elements
+    } catch (IOException e) { // Handle file reading errors
+        System.err.println("Error reading magicitems.txt: " + e.getMessage());
     }
 }
 
-// Processes magic items by reading from a file and inserting them into the BST
-public static void processMagicItems(String fileName, BinarySearchTree bst) {
-    try (BufferedReader br = new BufferedReader(new FileReader(fileName))) {
-        String item;
-        while ((item = br.readLine()) != null) { // Read each line from the file
-            item = item.trim(); // Remove leading/trailing spaces
-            if (!item.isEmpty()) { // Skip empty lines
-                bst.insert(item); // Insert the item into the BST
-            }
+// Builds a Bloom filter over the magic items so lookups can skip the BST for definite misses
+public static BloomFilter buildMissFilter(String fileName) {
+    try {
+        MappedCatalog catalog = MappedCatalog.open(fileName, true);
+        BloomFilter filter = new BloomFilter(catalog.size(), 0.01); // 1% false positives
+        for (int i = 0; i < catalog.size(); i++) {
+            filter.add(catalog.get(i));
         }
-        bst.inOrderTraversal(); // Perform in-order traversal to display BST elements
+        return filter;
     } catch (IOException e) { // Handle file reading errors
         System.err.println("Error reading magicitems.txt: " + e.getMessage());
+        return null;
     }
 }
 
 // Looks up magic items in the BST and calculates average comparisons for search
-public static void lookupMagicItems(String fileName, BinarySearchTree bst) {
+public static void lookupMagicItems(String fileName, AvlTree bst) {
+    lookupMagicItems(fileName, bst, null);
+}
+
+// Same lookup with an optional miss filter in front of the BST (null to search every item)
+public static void lookupMagicItems(String fileName, AvlTree bst, BloomFilter missFilter) {
     int totalComparisons = 0; // Tracks total comparisons made
     int itemCount = 0; // Counts the number of items found
-
-    try (BufferedReader br = new BufferedReader(new FileReader(fileName))) {
-        String item;
-        while ((item = br.readLine()) != null) { // Read each line from the file
-            item = item.trim(); // Remove leading/trailing spaces
-            if (!item.isEmpty()) { // Skip empty lines
-                int comparisons = bst.find(item); // Search for the item in the BST
-                if (comparisons != -1) { // If the item is found
-                    totalComparisons += comparisons; // Add to total comparisons
-                    itemCount++; // Increment item count
+    int[] filterProbes = {0}; // Bits checked by the miss filter
+    int filterRejections = 0; // Lookups the filter answered without touching the BST
+
+    try {
+        MappedCatalog catalog = MappedCatalog.open(fileName, true); // Trimmed entries, empty lines skipped
+        for (int i = 0; i < catalog.size(); i++) {
+            String item = catalog.get(i);
+            if (missFilter != null) {
+                int probesBefore = filterProbes[0];
+                boolean rejected = !missFilter.mightContain(item, filterProbes);
+                FILTER_PROBES.record(filterProbes[0] - probesBefore);
+                if (rejected) {
+                    if (bst.logsPaths()) {
+                        System.out.println(item + " not found in BST."); // Definite miss, skip the tree
+                    }
+                    filterRejections++;
+                    FILTER_REJECTIONS.increment();
+                    continue;
                 }
             }
+            Metrics.Span span = BST_FIND_TIME.start();
+            int comparisons = bst.find(item); // Search for the item in the BST
+            span.stop();
+            if (comparisons != -1) { // If the item is found
+                totalComparisons += comparisons; // Add to total comparisons
+                itemCount++; // Increment item count
+                BST_FIND_COMPARISONS.record(comparisons);
+            } else {
+                BST_MISSES.increment();
+            }
         }
 
         if (itemCount > 0) { // Calculate and print average comparisons if items were found
@@ -368,6 +251,10 @@ public static void lookupMagicItems(String fileName, BinarySearchTree bst) {
         } else { // Handle case where no items were found
             System.out.println("No items found for lookup.");
         }
+        if (missFilter != null) { // Report what the filter cost and saved
+            System.out.printf("Miss filter probes: %d | Rejected: %d | Estimated false positive rate: %.4f%n",
+                              filterProbes[0], filterRejections, missFilter.estimatedFalsePositiveRate());
+        }
     } catch (IOException e) { // Handle file reading errors
         System.err.println("Error reading magicitems-find-in-bst.txt: " + e.getMessage());
     }
@@ -381,9 +268,16 @@ public static void lookupMagicItems(String fileName, BinarySearchTree bst) {
 
         processGraphs(graphFileName);
 
-        BinarySearchTree bst = new BinarySearchTree();
+        // Run with -Dassignment3.treePaths=false to skip printing the path of every insert and find
+        AvlTree bst = new AvlTree(Boolean.parseBoolean(System.getProperty("assignment3.treePaths", "true")));
         processMagicItems(magicItemsFileName, bst);
 
-        lookupMagicItems(magicItemsFindFileName, bst);
+        // Run with -Dassignment3.missFilter=true to put a Bloom filter in front of the BST
+        BloomFilter missFilter = Boolean.getBoolean("assignment3.missFilter")
+                ? buildMissFilter(magicItemsFileName) : null;
+        lookupMagicItems(magicItemsFindFileName, bst, missFilter);
+
+        // Run with -Dmetrics.out=metrics.json (or .csv) for latency percentiles and distributions
+        Metrics.exportIfRequested();
     }
 }
\ No newline at end of file
@@ -0,0 +1,192 @@
+// Height-balanced binary search tree of Strings (AVL), the ordered index for the magic items.
+// Subtree heights on each side of a node differ by at most one, so the tree stays within
+// 1.44 log2 n levels even when the items arrive sorted, where a plain BST turns into a list.
+// Insert and find walk down in a loop; insert remembers the nodes it passed in a small array
+// and rebalances them on the way back up, so nothing recurses.
+//
+// The L/R path of every insert and find is only built and printed when path logging is on.
+// find always returns the number of comparisons it made (one per node visited).
+public class AvlTree {
+
+    private static final int MAX_HEIGHT = 64; // far above the height of any tree that fits in memory
+
+    private static final class Node {
+        final String value;
+        Node left, right;
+        int height = 1;
+
+        Node(String value) {
+            this.value = value;
+        }
+    }
+
+    private final boolean logPaths;
+    private Node root;
+    private int size;
+
+    // A tree that logs nothing
+    public AvlTree() {
+        this(false);
+    }
+
+    // With logPaths set, insert and find print the path they took, as the old BST did
+    public AvlTree(boolean logPaths) {
+        this.logPaths = logPaths;
+    }
+
+    public boolean logsPaths() {
+        return logPaths;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int height() {
+        return height(root);
+    }
+
+    // Inserts a value; a value already in the tree is left as it is
+    public void insert(String value) {
+        StringBuilder path = logPaths ? new StringBuilder() : null;
+        Node[] passed = new Node[MAX_HEIGHT];
+        int depth = 0;
+        boolean added = false;
+
+        if (root == null) {
+            root = new Node(value);
+            added = true;
+        } else {
+            Node current = root;
+            while (true) {
+                int cmp = value.compareTo(current.value);
+                if (cmp == 0) {
+                    break; // duplicate
+                }
+                passed[depth++] = current;
+                if (path != null) {
+                    path.append(cmp < 0 ? "L, " : "R, ");
+                }
+                Node next = cmp < 0 ? current.left : current.right;
+                if (next == null) {
+                    if (cmp < 0) {
+                        current.left = new Node(value);
+                    } else {
+                        current.right = new Node(value);
+                    }
+                    added = true;
+                    break;
+                }
+                current = next;
+            }
+        }
+
+        if (added) {
+            size++;
+            // Fix heights bottom up, rotating where a side got two taller, and relink each
+            // rebalanced subtree to its parent
+            for (int i = depth - 1; i >= 0; i--) {
+                Node balanced = rebalance(passed[i]);
+                if (i == 0) {
+                    root = balanced;
+                } else if (passed[i - 1].left == passed[i]) {
+                    passed[i - 1].left = balanced;
+                } else {
+                    passed[i - 1].right = balanced;
+                }
+            }
+        }
+        if (path != null) {
+            System.out.println("Inserted " + value + " with path: " + path);
+        }
+    }
+
+    // Comparisons made to find the value, or -1 if it is not in the tree
+    public int find(String value) {
+        StringBuilder path = logPaths ? new StringBuilder() : null;
+        int comparisons = 0;
+        Node current = root;
+        while (current != null) {
+            comparisons++;
+            int cmp = value.compareTo(current.value);
+            if (cmp == 0) {
+                if (path != null) {
+                    System.out.println("Found " + value + " with path: " + path + " in " + comparisons + " comparisons.");
+                }
+                return comparisons;
+            }
+            if (path != null) {
+                path.append(cmp < 0 ? "L, " : "R, ");
+            }
+            current = cmp < 0 ? current.left : current.right;
+        }
+        if (path != null) {
+            System.out.println(value + " not found in BST.");
+        }
+        return -1;
+    }
+
+    // Prints the values in order on one line
+    public void inOrderTraversal() {
+        System.out.println("In-Order Traversal of BST:");
+        StringBuilder line = new StringBuilder();
+        Node[] stack = new Node[MAX_HEIGHT];
+        int depth = 0;
+        Node current = root;
+        while (current != null || depth > 0) {
+            while (current != null) {
+                stack[depth++] = current;
+                current = current.left;
+            }
+            current = stack[--depth];
+            line.append(current.value).append(' ');
+            current = current.right;
+        }
+        System.out.println(line);
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static void updateHeight(Node node) {
+        node.height = Math.max(height(node.left), height(node.right)) + 1;
+    }
+
+    // Restores the height rule at node, returns the subtree's new root
+    private static Node rebalance(Node node) {
+        updateHeight(node);
+        int balance = height(node.left) - height(node.right);
+        if (balance > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left); // left-right case
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right); // right-left case
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        updateHeight(node);
+        updateHeight(left);
+        return left;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        updateHeight(node);
+        updateHeight(right);
+        return right;
+    }
+}
@@ -0,0 +1,125 @@
+import java.util.*;
+
+// Square 0/1 adjacency matrix with one bit per cell, each row a long[] of 64-cell words.
+// Adding a vertex only allocates its row; the row width doubles when it runs out, so building
+// V vertices costs O(V^2 / 64) words of copying in total instead of re-copying an int[n][n]
+// on every add. Whole-row operations (degree, common neighbors) work a word at a time.
+public class BitMatrix {
+
+    private long[][] rows = new long[0][];
+    private int wordsPerRow; // width of every allocated row
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    // Adds an empty row and column, returns the new vertex's index
+    public int addVertex() {
+        if (size == wordsPerRow * Long.SIZE) {
+            int newWords = Math.max(1, wordsPerRow * 2);
+            for (int i = 0; i < size; i++) {
+                rows[i] = Arrays.copyOf(rows[i], newWords);
+            }
+            wordsPerRow = newWords;
+        }
+        if (size == rows.length) {
+            rows = Arrays.copyOf(rows, Math.max(8, rows.length * 2));
+        }
+        rows[size] = new long[wordsPerRow];
+        return size++;
+    }
+
+    public boolean get(int i, int j) {
+        checkIndex(i);
+        checkIndex(j);
+        return (rows[i][j >>> 6] & (1L << j)) != 0;
+    }
+
+    public void set(int i, int j) {
+        checkIndex(i);
+        checkIndex(j);
+        rows[i][j >>> 6] |= 1L << j;
+    }
+
+    public void clear(int i, int j) {
+        checkIndex(i);
+        checkIndex(j);
+        rows[i][j >>> 6] &= ~(1L << j);
+    }
+
+    // Sets both (i, j) and (j, i), for undirected edges
+    public void setBoth(int i, int j) {
+        set(i, j);
+        set(j, i);
+    }
+
+    // Number of set cells in row i
+    public int degree(int i) {
+        checkIndex(i);
+        int count = 0;
+        for (long word : rows[i]) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    // Number of columns set in both rows, one AND per 64 columns
+    public int commonNeighborCount(int i, int j) {
+        checkIndex(i);
+        checkIndex(j);
+        long[] a = rows[i], b = rows[j];
+        int count = 0;
+        for (int w = 0; w < wordsPerRow; w++) {
+            count += Long.bitCount(a[w] & b[w]);
+        }
+        return count;
+    }
+
+    // Columns set in both rows, in increasing order
+    public int[] commonNeighbors(int i, int j) {
+        int[] common = new int[commonNeighborCount(i, j)];
+        long[] a = rows[i], b = rows[j];
+        int next = 0;
+        for (int w = 0; w < wordsPerRow; w++) {
+            long word = a[w] & b[w];
+            while (word != 0) {
+                common[next++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return common;
+    }
+
+    // First set column at or after `from` in row i, or -1
+    public int nextSetColumn(int i, int from) {
+        checkIndex(i);
+        if (from >= size) {
+            return -1;
+        }
+        long[] row = rows[i];
+        int w = from >>> 6;
+        long word = row[w] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                int column = (w << 6) + Long.numberOfTrailingZeros(word);
+                return column < size ? column : -1;
+            }
+            if (++w == wordsPerRow) {
+                return -1;
+            }
+            word = row[w];
+        }
+    }
+
+    // Bytes held by the row words
+    public long memoryBytes() {
+        return (long) size * wordsPerRow * Long.BYTES;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Vertex " + index + " out of bounds for matrix of " + size);
+        }
+    }
+}
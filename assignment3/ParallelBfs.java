@@ -0,0 +1,295 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+// Level-synchronous parallel breadth-first search over a CsrGraph on a fork-join pool.
+// Each level expands the whole frontier at once, split across workers, and results come back
+// as primitive arrays: the BFS level and parent of every vertex, plus the visit order.
+//
+// The fast mode is direction-optimizing. Top-down steps push from the frontier and claim
+// vertices with a compare-and-set on their level. When the frontier is large and its edges
+// outnumber a share of the edges still unexplored, it switches to bottom-up steps. There every
+// unvisited vertex looks for any neighbor in a frontier bitmap, and each worker owns whole
+// bitmap words, so no atomics are needed. It switches back once the frontier is small again.
+// Bottom-up needs in-edges, so directed graphs always go top-down. Parents and the order within
+// a level then depend on thread timing.
+//
+// The deterministic mode gives exactly the sequential BFS (Traversals.breadthFirstOrder) result.
+// A vertex belongs to the first frontier vertex, and its first edge slot, that reaches it.
+// Workers find that owner with an atomic min on a (frontier position, edge position) key. Each
+// frontier vertex then lays out the children it won in edge order, after those of the earlier
+// frontier vertices.
+public class ParallelBfs {
+
+    private static final int GRAIN = 2048; // vertices (or bitmap words) per task
+    private static final int ALPHA = 14; // go bottom-up when frontier edges > unexplored edges / ALPHA
+    private static final int BETA = 24; // go back top-down when frontier < vertices / BETA
+
+    private final ForkJoinPool pool;
+    private final boolean deterministic;
+
+    public ParallelBfs(boolean deterministic) {
+        this(ForkJoinPool.commonPool(), deterministic);
+    }
+
+    public ParallelBfs(ForkJoinPool pool, boolean deterministic) {
+        this.pool = pool;
+        this.deterministic = deterministic;
+    }
+
+    public static class Result {
+        public final int[] levels; // distance from the root of its search, -1 if never reached
+        public final int[] parents; // BFS tree parent, -1 for roots and unreached vertices
+        public final int[] order; // visited vertices level by level, one search after another
+        public final int maxLevel;
+        public final int bottomUpSteps; // levels expanded bottom-up, 0 in deterministic mode
+
+        Result(int[] levels, int[] parents, int[] order, int maxLevel, int bottomUpSteps) {
+            this.levels = levels;
+            this.parents = parents;
+            this.order = order;
+            this.maxLevel = maxLevel;
+            this.bottomUpSteps = bottomUpSteps;
+        }
+    }
+
+    // BFS from a single source
+    public Result search(CsrGraph graph, int source) {
+        return search(graph, new int[]{source});
+    }
+
+    // Like Traversals.breadthFirstOrder: a new search from every start not reached by an earlier one
+    public Result search(CsrGraph graph, int[] startOrder) {
+        return new Search(graph).run(startOrder);
+    }
+
+    // State for one call, so a ParallelBfs can be shared
+    private final class Search {
+        final CsrGraph graph;
+        final int n;
+        final AtomicIntegerArray levels; // -1 until claimed
+        final int[] parents;
+        final int[] order; // frontiers laid end to end; the current frontier is a slice of it
+        int visited;
+        int maxLevel;
+        int bottomUpSteps;
+        AtomicLongArray claims; // deterministic mode only: winning (frontier, edge) key per vertex
+
+        Search(CsrGraph graph) {
+            this.graph = graph;
+            this.n = graph.vertexCount();
+            this.levels = new AtomicIntegerArray(n);
+            for (int v = 0; v < n; v++) {
+                levels.set(v, -1);
+            }
+            this.parents = new int[n];
+            Arrays.fill(parents, -1);
+            this.order = new int[n];
+        }
+
+        Result run(int[] startOrder) {
+            if (deterministic) {
+                claims = new AtomicLongArray(n);
+                for (int v = 0; v < n; v++) {
+                    claims.set(v, Long.MAX_VALUE);
+                }
+            }
+            long unexplored = graph.edgeCount();
+            for (int root : startOrder) {
+                if (levels.get(root) != -1) {
+                    continue;
+                }
+                levels.set(root, 0);
+                order[visited++] = root;
+                unexplored -= graph.degree(root);
+                if (deterministic) {
+                    searchDeterministic(visited - 1);
+                } else {
+                    unexplored = searchFast(visited - 1, unexplored);
+                }
+            }
+            int[] levelArray = new int[n];
+            for (int v = 0; v < n; v++) {
+                levelArray[v] = levels.get(v);
+            }
+            return new Result(levelArray, parents, Arrays.copyOf(order, visited), maxLevel, bottomUpSteps);
+        }
+
+        // Frontier is order[from .. visited). Returns the edge count still unexplored.
+        long searchFast(int from, long unexplored) {
+            int level = 0;
+            boolean bottomUp = false;
+            while (from < visited) {
+                int frontierEnd = visited;
+                long frontierEdges = 0;
+                for (int i = from; i < frontierEnd; i++) {
+                    frontierEdges += graph.degree(order[i]);
+                }
+                if (!graph.isDirected()) {
+                    // A bottom-up step scans every vertex, so it only pays off for a large frontier
+                    boolean large = frontierEnd - from >= n / BETA;
+                    if (!bottomUp && large && frontierEdges > unexplored / ALPHA) {
+                        bottomUp = true;
+                    } else if (bottomUp && !large) {
+                        bottomUp = false;
+                    }
+                }
+                long discoveredEdges = bottomUp ? bottomUpStep(from, frontierEnd, level) : topDownStep(from, frontierEnd, level);
+                if (bottomUp) {
+                    bottomUpSteps++;
+                }
+                unexplored -= discoveredEdges;
+                from = frontierEnd;
+                level++;
+                if (from < visited) {
+                    maxLevel = Math.max(maxLevel, level);
+                }
+            }
+            return unexplored;
+        }
+
+        // Frontier vertices claim unvisited neighbors. Each task gathers its finds locally and
+        // then reserves a block at the end of order for them.
+        long topDownStep(int from, int to, int level) {
+            AtomicInteger tail = new AtomicInteger(visited);
+            AtomicLong discoveredEdges = new AtomicLong();
+            parallelFor(from, to, (lo, hi) -> {
+                int[] found = new int[16];
+                int count = 0;
+                long edges = 0;
+                for (int i = lo; i < hi; i++) {
+                    int u = order[i];
+                    for (int e = graph.begin(u); e < graph.end(u); e++) {
+                        int v = graph.target(e);
+                        if (levels.get(v) == -1 && levels.compareAndSet(v, -1, level + 1)) {
+                            parents[v] = u;
+                            if (count == found.length) {
+                                found = Arrays.copyOf(found, count * 2);
+                            }
+                            found[count++] = v;
+                            edges += graph.degree(v);
+                        }
+                    }
+                }
+                System.arraycopy(found, 0, order, tail.getAndAdd(count), count);
+                discoveredEdges.addAndGet(edges);
+            });
+            visited = tail.get();
+            return discoveredEdges.get();
+        }
+
+        // Every unvisited vertex checks its neighbors against the frontier bitmap. Tasks own
+        // whole 64-vertex words of the output bitmap.
+        long bottomUpStep(int from, int to, int level) {
+            int words = (n + 63) >>> 6;
+            long[] frontier = new long[words];
+            for (int i = from; i < to; i++) {
+                Traversals.set(frontier, order[i]);
+            }
+            long[] next = new long[words];
+            AtomicLong discoveredEdges = new AtomicLong();
+            parallelFor(0, words, (lo, hi) -> {
+                long edges = 0;
+                for (int w = lo; w < hi; w++) {
+                    int end = Math.min(n, (w + 1) << 6);
+                    for (int v = w << 6; v < end; v++) {
+                        if (levels.get(v) != -1) {
+                            continue;
+                        }
+                        for (int e = graph.begin(v); e < graph.end(v); e++) {
+                            int u = graph.target(e);
+                            if (Traversals.isSet(frontier, u)) {
+                                levels.set(v, level + 1);
+                                parents[v] = u;
+                                next[w] |= 1L << v;
+                                edges += graph.degree(v);
+                                break;
+                            }
+                        }
+                    }
+                }
+                discoveredEdges.addAndGet(edges);
+            });
+            for (int w = 0; w < words; w++) {
+                for (long word = next[w]; word != 0; word &= word - 1) {
+                    order[visited++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                }
+            }
+            return discoveredEdges.get();
+        }
+
+        void searchDeterministic(int from) {
+            int level = 0;
+            while (from < visited) {
+                int frontierEnd = visited;
+                int size = frontierEnd - from;
+                int base = from;
+                int nextLevel = level + 1;
+
+                // Find the owner of every vertex reached this level
+                parallelFor(base, frontierEnd, (lo, hi) -> {
+                    for (int i = lo; i < hi; i++) {
+                        int u = order[i];
+                        int begin = graph.begin(u);
+                        for (int e = begin; e < graph.end(u); e++) {
+                            int v = graph.target(e);
+                            if (levels.get(v) == -1) {
+                                long key = ((long) (i - base) << 32) | (e - begin);
+                                claims.accumulateAndGet(v, key, Math::min);
+                            }
+                        }
+                    }
+                });
+
+                // Count what each frontier vertex won, then give it a block of the next frontier
+                int[] won = new int[size + 1];
+                parallelFor(base, frontierEnd, (lo, hi) -> {
+                    for (int i = lo; i < hi; i++) {
+                        won[i - base + 1] = countWon(i - base, order[i]);
+                    }
+                });
+                for (int i = 0; i < size; i++) {
+                    won[i + 1] += won[i];
+                }
+                int start = visited;
+                parallelFor(base, frontierEnd, (lo, hi) -> {
+                    for (int i = lo; i < hi; i++) {
+                        int u = order[i];
+                        int begin = graph.begin(u);
+                        int write = start + won[i - base];
+                        for (int e = begin; e < graph.end(u); e++) {
+                            int v = graph.target(e);
+                            if (levels.get(v) == -1 && claims.get(v) == (((long) (i - base) << 32) | (e - begin))) {
+                                levels.set(v, nextLevel);
+                                parents[v] = u;
+                                order[write++] = v;
+                            }
+                        }
+                    }
+                });
+                visited = start + won[size];
+                from = frontierEnd;
+                level++;
+                if (from < visited) {
+                    maxLevel = Math.max(maxLevel, level);
+                }
+            }
+        }
+
+        private int countWon(int position, int u) {
+            int begin = graph.begin(u);
+            int count = 0;
+            for (int e = begin; e < graph.end(u); e++) {
+                int v = graph.target(e);
+                if (levels.get(v) == -1 && claims.get(v) == (((long) position << 32) | (e - begin))) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        void parallelFor(int from, int to, ParallelRange.Body body) {
+            ParallelRange.forEach(pool, from, to, GRAIN, body);
+        }
+    }
+}
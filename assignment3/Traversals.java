@@ -0,0 +1,91 @@
+// Iterative depth-first and breadth-first traversal over a CsrGraph.
+// Neither recurses, so a path of millions of vertices is fine. DFS keeps an explicit stack of
+// (vertex, next edge to try) pairs in two int arrays, BFS a single int[] queue, and visits are
+// tracked in a bitset. Nothing is allocated per vertex, and neighbors are read in the order the
+// graph stores them (numeric in Assignment3, sorted once when the graph was built).
+public class Traversals {
+
+    private Traversals() {
+    }
+
+    // Vertices in depth-first preorder, starting a new tree at each unvisited vertex of
+    // startOrder in turn. Same order as the recursive version: a vertex is emitted when first
+    // reached and its neighbors are tried in storage order.
+    public static int[] depthFirstOrder(CsrGraph graph, int[] startOrder) {
+        int n = graph.vertexCount();
+        long[] visited = new long[(n + 63) >>> 6];
+        int[] order = new int[n];
+        int emitted = 0;
+        int[] stackVertex = new int[n];
+        int[] stackEdge = new int[n]; // next edge slot to try for the vertex at the same depth
+
+        for (int start : startOrder) {
+            if (isSet(visited, start)) {
+                continue;
+            }
+            set(visited, start);
+            order[emitted++] = start;
+            int depth = 0;
+            stackVertex[0] = start;
+            stackEdge[0] = graph.begin(start);
+
+            while (depth >= 0) {
+                int vertex = stackVertex[depth];
+                int end = graph.end(vertex);
+                int e = stackEdge[depth];
+                while (e < end && isSet(visited, graph.target(e))) {
+                    e++;
+                }
+                if (e == end) {
+                    depth--; // all neighbors done, back up
+                    continue;
+                }
+                stackEdge[depth] = e + 1; // resume after this edge when we come back
+                int next = graph.target(e);
+                set(visited, next);
+                order[emitted++] = next;
+                depth++;
+                stackVertex[depth] = next;
+                stackEdge[depth] = graph.begin(next);
+            }
+        }
+        return order;
+    }
+
+    // Vertices in breadth-first order, starting a new search at each unvisited vertex of
+    // startOrder in turn. Every vertex enters the queue exactly once, so the queue array is
+    // itself the visit order.
+    public static int[] breadthFirstOrder(CsrGraph graph, int[] startOrder) {
+        int n = graph.vertexCount();
+        long[] visited = new long[(n + 63) >>> 6];
+        int[] queue = new int[n];
+        int head = 0, tail = 0;
+
+        for (int start : startOrder) {
+            if (isSet(visited, start)) {
+                continue;
+            }
+            set(visited, start);
+            queue[tail++] = start;
+            while (head < tail) {
+                int current = queue[head++];
+                for (int e = graph.begin(current); e < graph.end(current); e++) {
+                    int neighbor = graph.target(e);
+                    if (!isSet(visited, neighbor)) {
+                        set(visited, neighbor);
+                        queue[tail++] = neighbor;
+                    }
+                }
+            }
+        }
+        return queue;
+    }
+
+    static boolean isSet(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    static void set(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+}
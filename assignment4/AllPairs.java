@@ -0,0 +1,157 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+// Shortest paths between any two vertices of a CsrGraph, by Johnson's algorithm. One
+// Bellman-Ford pass from a virtual source joined to every vertex by a 0 edge gives each vertex a
+// potential h(v) <= 0 with w(u, v) + h(u) - h(v) >= 0 on every edge. Dijkstra runs on those
+// reweighted edges from each source asked for, and shortest paths stay shortest, since every
+// path from s to t changes by the same h(s) - h(t). With V sources that is O(V E log V) instead
+// of the O(V^2 E) a Bellman-Ford per source takes.
+//
+// Results are kept per source in an LRU cache of `cacheSize` sources, so repeated (u, v)
+// queries from the same few sources cost a lookup. Paths are the ones Bellman-Ford from that
+// source would print, ties included (see Dijkstra.bellmanFordPredecessors).
+//
+// A negative cycle anywhere breaks the potentials, though it only matters to the sources that
+// reach it. Each source then falls back to GraphProcessor.shortestPaths, so every source gets
+// the same answer it would get on its own.
+public class AllPairs {
+
+    private static final Metrics.Counter CACHE_HITS = Metrics.counter("apsp.cache.hits");
+    private static final Metrics.Counter CACHE_MISSES = Metrics.counter("apsp.cache.misses");
+    private static final Metrics.Histogram POTENTIAL_PASSES = Metrics.histogram("apsp.potential.passes", "passes");
+    private static final Metrics.Counter EDGE_CHECKS = Metrics.counter("sssp.edgeChecks");
+
+    private final CsrGraph graph;
+    private final ForkJoinPool pool;
+    private final long[] potentials; // null when every weight is already non-negative
+    private final boolean negativeCycle;
+    private final Map<Integer, SsspResult> cache;
+
+    public AllPairs(CsrGraph graph, int cacheSize) {
+        this(graph, cacheSize, ForkJoinPool.commonPool());
+    }
+
+    public AllPairs(CsrGraph graph, int cacheSize, ForkJoinPool pool) {
+        if (cacheSize < 1) {
+            throw new IllegalArgumentException("Cache size must be at least 1: " + cacheSize);
+        }
+        this.graph = graph;
+        this.pool = pool;
+        this.cache = new LinkedHashMap<Integer, SsspResult>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, SsspResult> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        if (graph.hasNegativeWeights()) {
+            long[] h = new long[graph.vertexCount()];
+            negativeCycle = !potentials(graph, h);
+            potentials = negativeCycle ? null : h;
+        } else {
+            potentials = null;
+            negativeCycle = false;
+        }
+    }
+
+    // Whether the graph has a negative cycle somewhere, reachable from a given source or not
+    public boolean hasNegativeCycle() {
+        return negativeCycle;
+    }
+
+    public long distance(int from, int to) {
+        return from(from).distances[to];
+    }
+
+    public int[] path(int from, int to) {
+        return from(from).path(to);
+    }
+
+    // Shortest paths from one source, from the cache when it is there
+    public SsspResult from(int source) {
+        SsspResult result = cached(source);
+        if (result == null) {
+            result = solve(source, new IndexedDaryHeap(graph.vertexCount()));
+            store(source, result);
+        }
+        return result;
+    }
+
+    // Shortest paths from each of the sources, in the same order. The ones not cached yet are
+    // solved in parallel on the pool, each worker reusing one heap across its sources.
+    public SsspResult[] from(int[] sources) {
+        SsspResult[] results = new SsspResult[sources.length];
+        int[] missing = new int[sources.length]; // slots in sources still to solve
+        int count = 0;
+        for (int i = 0; i < sources.length; i++) {
+            results[i] = cached(sources[i]);
+            if (results[i] == null) {
+                missing[count++] = i;
+            }
+        }
+        int grain = Math.max(1, count / (pool.getParallelism() * 4));
+        ParallelRange.forEach(pool, 0, count, grain, (lo, hi) -> {
+            IndexedDaryHeap heap = new IndexedDaryHeap(graph.vertexCount());
+            for (int k = lo; k < hi; k++) {
+                int i = missing[k];
+                results[i] = solve(sources[i], heap);
+            }
+        });
+        for (int k = 0; k < count; k++) {
+            store(sources[missing[k]], results[missing[k]]);
+        }
+        return results;
+    }
+
+    private SsspResult solve(int source, IndexedDaryHeap heap) {
+        if (negativeCycle) {
+            return GraphProcessor.shortestPaths(graph, source);
+        }
+        long[] distances = Dijkstra.distances(graph, source, potentials, heap);
+        heap.clear();
+        int[] predecessors = Dijkstra.bellmanFordPredecessors(graph, source, distances, heap);
+        heap.clear();
+        return new SsspResult(source, distances, predecessors, false);
+    }
+
+    private SsspResult cached(int source) {
+        SsspResult result;
+        synchronized (cache) {
+            result = cache.get(source);
+        }
+        (result == null ? CACHE_MISSES : CACHE_HITS).increment();
+        return result;
+    }
+
+    private void store(int source, SsspResult result) {
+        synchronized (cache) {
+            cache.put(source, result);
+        }
+    }
+
+    // Bellman-Ford from the virtual source: every vertex starts at 0, and passes stop as soon as
+    // one changes nothing. The virtual source makes it V + 1 vertices, so anything still
+    // improving in pass V + 1 is on or behind a negative cycle. Returns false in that case.
+    private static boolean potentials(CsrGraph graph, long[] h) {
+        int n = graph.vertexCount();
+        boolean changed = true;
+        int passes = 0;
+        while (changed && passes <= n) {
+            changed = false;
+            passes++;
+            for (int u = 0; u < n; u++) {
+                long hu = h[u];
+                for (int e = graph.begin(u); e < graph.end(u); e++) {
+                    int v = graph.target(e);
+                    if (hu + graph.weight(e) < h[v]) {
+                        h[v] = hu + graph.weight(e);
+                        changed = true;
+                    }
+                }
+            }
+        }
+        POTENTIAL_PASSES.record(passes);
+        EDGE_CHECKS.add((long) passes * graph.edgeCount());
+        return !changed;
+    }
+}
@@ -0,0 +1,98 @@
+import java.util.*;
+
+// Dijkstra's algorithm over a CsrGraph with non-negative weights, on an IndexedDaryHeap. It
+// takes O(E log V) instead of Bellman-Ford's O(V E).
+//
+// When several shortest paths tie, the path printed has to be the one Bellman-Ford would have
+// kept, so predecessors come from a second, cheaper pass. Bellman-Ford (GraphProcessor) sweeps
+// the vertices in index order, pass after pass, and keeps the first edge that brings a vertex
+// to its final distance. Only tight edges (d(u) + w = d(v)) can do that, and only once u itself
+// is final. Bellman-Ford scans u's edges with the final d(u) in some pass p(u): the same pass
+// u became final if the vertex that finalized it comes earlier in the sweep, else the next one.
+// So v's predecessor is the tight in-edge with the smallest (p(u), u, edge slot). That key
+// strictly grows along tight edges, so the second pass is label-setting in key order, on a
+// heap again.
+public class Dijkstra {
+
+    private static final Metrics.Histogram RELAXATIONS = Metrics.histogram("sssp.relaxations", "relaxations");
+    private static final Metrics.Counter EDGE_CHECKS = Metrics.counter("sssp.edgeChecks");
+
+    private Dijkstra() {
+    }
+
+    public static SsspResult shortestPaths(CsrGraph graph, int source) {
+        if (graph.hasNegativeWeights()) {
+            throw new IllegalArgumentException("Dijkstra needs non-negative edge weights");
+        }
+        int n = graph.vertexCount();
+        IndexedDaryHeap heap = new IndexedDaryHeap(n);
+        long[] distances = distances(graph, source, null, heap);
+        return new SsspResult(source, distances, bellmanFordPredecessors(graph, source, distances, heap), false);
+    }
+
+    // Plain Dijkstra, distances only. With potentials (Johnson's reweighting, see AllPairs) the
+    // search runs on w(u, v) + h(u) - h(v), which must be non-negative, and the distances are
+    // shifted back to the real weights at the end. Null potentials means the weights as they are.
+    static long[] distances(CsrGraph graph, int source, long[] potentials, IndexedDaryHeap heap) {
+        long[] distances = new long[graph.vertexCount()];
+        Arrays.fill(distances, SsspResult.UNREACHABLE);
+        distances[source] = 0;
+        heap.insertOrDecrease(source, 0);
+        long relaxations = 0;
+        long edgeChecks = 0;
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            long du = distances[u] + (potentials == null ? 0 : potentials[u]);
+            for (int e = graph.begin(u); e < graph.end(u); e++) {
+                edgeChecks++;
+                int v = graph.target(e);
+                long candidate = du + graph.weight(e) - (potentials == null ? 0 : potentials[v]);
+                if (candidate < distances[v]) {
+                    distances[v] = candidate;
+                    heap.insertOrDecrease(v, candidate);
+                    relaxations++;
+                }
+            }
+        }
+        if (potentials != null) {
+            for (int v = 0; v < distances.length; v++) {
+                if (distances[v] != SsspResult.UNREACHABLE) {
+                    distances[v] += potentials[v] - potentials[source];
+                }
+            }
+        }
+        RELAXATIONS.record(relaxations);
+        EDGE_CHECKS.add(edgeChecks);
+        return distances;
+    }
+
+    // The predecessors Bellman-Ford would end with, given the final distances (see above).
+    // Keys pack (pass, vertex) into a long; the first tight edge out of a vertex wins over
+    // later ones, since those have the same key. Nothing here needs non-negative weights, only
+    // the distances, so AllPairs uses it on graphs with negative edges too.
+    static int[] bellmanFordPredecessors(CsrGraph graph, int source, long[] distances, IndexedDaryHeap heap) {
+        int n = graph.vertexCount();
+        int[] predecessors = new int[n];
+        int[] passes = new int[n]; // pass in which Bellman-Ford first scans the vertex with its final distance
+        Arrays.fill(predecessors, -1);
+        passes[source] = 1;
+        heap.insertOrDecrease(source, 0);
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            if (u != source) {
+                int before = predecessors[u];
+                passes[u] = passes[before] + (before > u ? 1 : 0);
+            }
+            long key = ((long) passes[u] << 32) | u;
+            long du = distances[u];
+            for (int e = graph.begin(u); e < graph.end(u); e++) {
+                int v = graph.target(e);
+                boolean settled = passes[v] != 0;
+                if (!settled && du + graph.weight(e) == distances[v] && heap.insertOrDecrease(v, key)) {
+                    predecessors[v] = u;
+                }
+            }
+        }
+        return predecessors;
+    }
+}
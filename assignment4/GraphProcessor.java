@@ -1,146 +1,191 @@
 import java.io.*;
+import java.nio.file.Paths;
 import java.util.*;
 
 public class GraphProcessor {
 
-    // Class to represent a vertex (node) in the graph
-    static class Vertex {
-        String id; // Identifier for the vertex
-        List<Edge> edges; // List of edges originating from this vertex
+    // Opt-in instrumentation, see Metrics
+    private static final Metrics.Timer SSSP_TIME = Metrics.timer("sssp.run", true);
+    private static final Metrics.Histogram SSSP_PASSES = Metrics.histogram("sssp.passes", "passes");
+    private static final Metrics.Histogram SSSP_RELAXATIONS = Metrics.histogram("sssp.relaxations", "relaxations");
+    private static final Metrics.Counter EDGE_CHECKS = Metrics.counter("sssp.edgeChecks");
+    private static final Metrics.Counter NEGATIVE_CYCLES = Metrics.counter("sssp.negativeCycles");
+    private static final Metrics.Timer SPICE_TIME = Metrics.timer("spice.process", true);
 
-        // Constructor to initialize a vertex with an ID
-        Vertex(String id) {
-            this.id = id;
-            this.edges = new ArrayList<>();
-        }
+    // SSSP engine: "auto" (the default) runs Dijkstra on graphs without negative weights and
+    // Bellman-Ford on the rest. "bellman-ford" or "spfa" force one engine, and "parallel" or
+    // "parallel-fast" run Bellman-Ford rounds across the common pool. "dijkstra" is accepted
+    // too, but Dijkstra cannot handle negative weights, so those graphs still get Bellman-Ford.
+    // Bellman-Ford, Dijkstra, SPFA and parallel print identical results; parallel-fast may pick
+    // another path of the same cost on ties.
+    private static final String SSSP_ENGINE = System.getProperty("assignment4.sssp", "auto");
 
-        // Method to add an edge from this vertex to another
-        void addEdge(Vertex to, int weight) {
-            edges.add(new Edge(this, to, weight));
-        }
-    }
+    // Directed, weighted CSR graphs; edges keep file order, which sets the relaxation order.
+    // Graphs are cut at each "new graph" and solved in parallel, output still in file order.
+    private static final GraphFileParser PARSER =
+            new GraphFileParser(() -> new CsrGraph.Builder(true, true), true);
 
-    // Class to represent an edge in the graph
-    static class Edge {
-        Vertex from; // Starting vertex of the edge
-        Vertex to;   // Ending vertex of the edge
-        int weight;  // Weight of the edge
-
-        // Constructor to initialize an edge
-        Edge(Vertex from, Vertex to, int weight) {
-            this.from = from;
-            this.to = to;
-            this.weight = weight;
-        }
-    }
+    // Run with -Dassignment4.snapshot=true to keep a binary copy of the parsed graphs next to the
+    // file (graphs2.txt.snapshot) and map it on later runs instead of parsing the text
+    private static final boolean SNAPSHOT = Boolean.getBoolean("assignment4.snapshot");
 
-    public static void processGraphs(String fileName) {
-        try (BufferedReader br = new BufferedReader(new FileReader(fileName))) {
-            String line;
-            boolean isNewGraph = false;
-            Map<String, Vertex> linkedGraph = new HashMap<>();
+    // Sources to print paths from: "1" (the default), a comma-separated list of vertex ids, or
+    // "all". Anything but the default goes through AllPairs (Johnson's algorithm), solving the
+    // sources in parallel and keeping the last -Dassignment4.apspCache of them (256 by default).
+    private static final String SOURCES = System.getProperty("assignment4.sources", "1");
+    private static final int APSP_CACHE = Integer.getInteger("assignment4.apspCache", 256);
 
+    public static void processGraphs(String fileName) {
+        try (InputStream in = new FileInputStream(fileName)) {
             System.out.println("SSSP Results for Graphs");
-
-            while ((line = br.readLine()) != null) {
-                line = line.trim();
-
-                if (line.startsWith("new graph")) {
-                    if (isNewGraph) {
-                        System.out.println("\nGraph:");
-                        runSSSP(linkedGraph, "1");
-                    }
-                    isNewGraph = true;
-                    linkedGraph.clear();
-                } else if (line.startsWith("add vertex")) {
-                    String vertexId = line.replace("add vertex", "").trim();
-                    linkedGraph.put(vertexId, new Vertex(vertexId));
-                } else if (line.startsWith("add edge")) {
-                    String[] parts = line.replace("add edge", "").trim().split("\\s+");
-
-                    if (parts.length < 4) {
-                        System.err.println("Invalid edge format: " + line);
-                        continue;
-                    }
-
-                    String u = parts[0];
-                    String v = parts[2];
-                    int weight = Integer.parseInt(parts[parts.length - 1]);
-
-                    if (linkedGraph.containsKey(u) && linkedGraph.containsKey(v)) {
-                        linkedGraph.get(u).addEdge(linkedGraph.get(v), weight);
-                    } else {
-                        System.err.println("Invalid edge with undefined vertices: " + line);
-                    }
+            PARSER.process(in, SNAPSHOT ? Paths.get(fileName) : null, (graph, components, out) -> {
+                out.println("\nGraph:");
+                if (SOURCES.equals("1")) {
+                    runSSSP(graph, "1", out);
+                } else {
+                    runAllPairs(graph, SOURCES, out);
                 }
-            }
-
-            if (isNewGraph) {
-                System.out.println("\nGraph:");
-                runSSSP(linkedGraph, "1");
-            }
+            });
         } catch (IOException e) {
             System.err.println("Error reading the file: " + e.getMessage());
         }
     }
 
-    public static void runSSSP(Map<String, Vertex> graph, String sourceId) {
-        if (!graph.containsKey(sourceId)) {
-            System.out.println("Source vertex " + sourceId + " not found in the graph.");
+    // Runs SSSP from the source and prints the cost and path to every other vertex
+    public static void runSSSP(CsrGraph graph, String sourceId, PrintStream out) {
+        int source = graph.indexOf(sourceId);
+        if (source < 0) {
+            out.println("Source vertex " + sourceId + " not found in the graph.");
             return;
         }
 
-        Map<String, Integer> distances = new HashMap<>();
-        Map<String, String> predecessors = new HashMap<>();
+        Metrics.Span span = SSSP_TIME.start();
+        SsspResult result = shortestPaths(graph, source);
+        span.stop();
+        printPaths(graph, sourceId, result, out);
+    }
+
+    // runSSSP for each of the sources ("all" or a comma-separated list of ids), in order
+    public static void runAllPairs(CsrGraph graph, String sources, PrintStream out) {
+        List<String> ids = new ArrayList<>();
+        if (sources.equals("all")) {
+            for (int v = 0; v < graph.vertexCount(); v++) {
+                ids.add(graph.id(v));
+            }
+        } else {
+            for (String id : sources.split(",")) {
+                ids.add(id.trim());
+            }
+        }
+        AllPairs paths = new AllPairs(graph, APSP_CACHE);
+        // Batches no bigger than the cache, so a batch is never evicted before it is printed
+        for (int start = 0; start < ids.size(); start += APSP_CACHE) {
+            List<String> batch = ids.subList(start, Math.min(ids.size(), start + APSP_CACHE));
+            int[] sourceIndexes = batch.stream().mapToInt(graph::indexOf).filter(v -> v >= 0).toArray();
+            Metrics.Span span = SSSP_TIME.start();
+            SsspResult[] results = paths.from(sourceIndexes);
+            span.stop();
+            int next = 0;
+            for (String id : batch) {
+                out.println("From " + id + ":");
+                if (graph.indexOf(id) < 0) {
+                    out.println("Source vertex " + id + " not found in the graph.");
+                } else {
+                    printPaths(graph, id, results[next++], out);
+                }
+            }
+        }
+    }
 
-        for (String vertexId : graph.keySet()) {
-            distances.put(vertexId, Integer.MAX_VALUE);
-            predecessors.put(vertexId, null);
+    // Cost and path from the source to every other vertex
+    private static void printPaths(CsrGraph graph, String sourceId, SsspResult result, PrintStream out) {
+        int source = result.source;
+        if (result.negativeCycle) {
+            out.println("Graph contains a negative-weight cycle.");
+            return;
         }
-        distances.put(sourceId, 0);
-
-        int verticesCount = graph.size();
-        for (int i = 1; i < verticesCount; i++) {
-            for (Vertex vertex : graph.values()) {
-                for (Edge edge : vertex.edges) {
-                    if (distances.get(vertex.id) != Integer.MAX_VALUE
-                            && distances.get(vertex.id) + edge.weight < distances.get(edge.to.id)) {
-                        distances.put(edge.to.id, distances.get(vertex.id) + edge.weight);
-                        predecessors.put(edge.to.id, vertex.id);
-                    }
+        for (int v = 0; v < graph.vertexCount(); v++) {
+            if (v != source) {
+                if (!result.reachable(v)) {
+                    out.println("No path from " + sourceId + " to " + graph.id(v));
+                } else {
+                    out.println(sourceId + " --> " + graph.id(v) + " cost is " + result.distances[v] +
+                            "; path: " + getPath(graph, result, v));
                 }
             }
         }
+    }
 
-        for (Vertex vertex : graph.values()) {
-            for (Edge edge : vertex.edges) {
-                if (distances.get(vertex.id) != Integer.MAX_VALUE
-                        && distances.get(vertex.id) + edge.weight < distances.get(edge.to.id)) {
-                    System.out.println("Graph contains a negative-weight cycle.");
-                    return;
+    // Shortest paths from source with the engine picked by -Dassignment4.sssp
+    public static SsspResult shortestPaths(CsrGraph graph, int source) {
+        switch (SSSP_ENGINE) {
+            case "auto":
+            case "dijkstra":
+                return graph.hasNegativeWeights() ? bellmanFord(graph, source) : Dijkstra.shortestPaths(graph, source);
+            case "bellman-ford":
+                return bellmanFord(graph, source);
+            case "spfa":
+                return Spfa.shortestPaths(graph, source);
+            case "parallel":
+                return new ParallelSssp(true).shortestPaths(graph, source);
+            case "parallel-fast":
+                return new ParallelSssp(false).shortestPaths(graph, source);
+            default:
+                throw new IllegalArgumentException("Unknown SSSP engine: " + SSSP_ENGINE);
+        }
+    }
+
+    // V - 1 passes relaxing every edge in vertex order, then one more pass to look for a
+    // negative-weight cycle
+    public static SsspResult bellmanFord(CsrGraph graph, int source) {
+        int n = graph.vertexCount();
+        long[] distances = new long[n];
+        int[] predecessors = new int[n];
+        Arrays.fill(distances, SsspResult.UNREACHABLE);
+        Arrays.fill(predecessors, -1);
+        distances[source] = 0;
+
+        long relaxations = 0;
+        for (int i = 1; i < n; i++) {
+            for (int u = 0; u < n; u++) {
+                long du = distances[u];
+                if (du == SsspResult.UNREACHABLE) {
+                    continue;
+                }
+                for (int e = graph.begin(u); e < graph.end(u); e++) {
+                    int v = graph.target(e);
+                    if (du + graph.weight(e) < distances[v]) {
+                        distances[v] = du + graph.weight(e);
+                        predecessors[v] = u;
+                        relaxations++;
+                    }
                 }
             }
         }
+        SSSP_PASSES.record(Math.max(0, n - 1));
+        SSSP_RELAXATIONS.record(relaxations);
+        EDGE_CHECKS.add((long) Math.max(0, n - 1) * graph.edgeCount());
 
-        for (String vertexId : graph.keySet()) {
-            if (!vertexId.equals(sourceId)) {
-                if (distances.get(vertexId) == Integer.MAX_VALUE) {
-                    System.out.println("No path from " + sourceId + " to " + vertexId);
-                } else {
-                    System.out.println("1 --> " + vertexId + " cost is " + distances.get(vertexId) +
-                            "; path: " + getPath(predecessors, vertexId));
+        for (int u = 0; u < n; u++) {
+            if (distances[u] == SsspResult.UNREACHABLE) {
+                continue;
+            }
+            for (int e = graph.begin(u); e < graph.end(u); e++) {
+                if (distances[u] + graph.weight(e) < distances[graph.target(e)]) {
+                    NEGATIVE_CYCLES.increment();
+                    return new SsspResult(source, distances, predecessors, true);
                 }
             }
         }
+        return new SsspResult(source, distances, predecessors, false);
     }
 
-    private static String getPath(Map<String, String> predecessors, String target) {
-        List<String> path = new ArrayList<>();
-        for (String at = target; at != null; at = predecessors.get(at)) {
-            path.add(at);
+    private static String getPath(CsrGraph graph, SsspResult result, int target) {
+        StringJoiner path = new StringJoiner(" --> ");
+        for (int v : result.path(target)) {
+            path.add(graph.id(v));
         }
-        Collections.reverse(path);
-        return String.join(" --> ", path);
+        return path.toString();
     }
 
     static class Spice {
@@ -166,6 +211,12 @@ public class GraphProcessor {
     }
 
     public static void processSpice(String filename) {
+        Metrics.Span span = SPICE_TIME.start();
+        solveSpice(filename);
+        span.stop();
+    }
+
+    private static void solveSpice(String filename) {
         List<Spice> spices = new ArrayList<>();
         List<Knapsack> knapsacks = new ArrayList<>();
     
@@ -231,5 +282,8 @@ public class GraphProcessor {
         String spiceFileName = "assignment4/spice.txt";
         System.out.println("\nSpice Heist Results:");
         processSpice(spiceFileName);
+
+        // Run with -Dmetrics.out=metrics.json (or .csv) for latency percentiles and distributions
+        Metrics.exportIfRequested();
     }
 }
@@ -0,0 +1,124 @@
+import java.util.*;
+
+// Min-heap of the items 0..capacity-1 keyed by longs, with decrease-key. Each node has D
+// children, which makes the heap shallower than a binary one: decrease-key (the common
+// operation in Dijkstra) climbs fewer levels, and the D children of a node sit next to each
+// other in memory when poll sifts down. position[] maps every item to its slot so an item's
+// key can be lowered in place.
+public class IndexedDaryHeap {
+
+    private static final int D = 4;
+
+    private final int[] heap; // items in heap order
+    private final int[] position; // slot of each item, -1 when not in the heap
+    private final long[] keys; // key of each item
+    private int size;
+
+    public IndexedDaryHeap(int capacity) {
+        heap = new int[capacity];
+        position = new int[capacity];
+        keys = new long[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int item) {
+        return position[item] >= 0;
+    }
+
+    public long key(int item) {
+        return keys[item];
+    }
+
+    // Adds the item, or lowers its key if it is already in the heap with a larger one.
+    // Returns false if the item was in the heap with a key no larger than this.
+    public boolean insertOrDecrease(int item, long key) {
+        int slot = position[item];
+        if (slot < 0) {
+            slot = size++;
+            heap[slot] = item;
+            position[item] = slot;
+        } else if (key >= keys[item]) {
+            return false;
+        }
+        keys[item] = key;
+        siftUp(slot);
+        return true;
+    }
+
+    // Removes and returns the item with the smallest key
+    public int poll() {
+        if (size == 0) {
+            throw new NoSuchElementException("Heap is empty");
+        }
+        int min = heap[0];
+        position[min] = -1;
+        size--;
+        if (size > 0) {
+            heap[0] = heap[size];
+            position[heap[0]] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    // Empties the heap so it can be reused, in time proportional to what was left in it
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            position[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void siftUp(int slot) {
+        int item = heap[slot];
+        long key = keys[item];
+        while (slot > 0) {
+            int parent = (slot - 1) / D;
+            int parentItem = heap[parent];
+            if (keys[parentItem] <= key) {
+                break;
+            }
+            heap[slot] = parentItem;
+            position[parentItem] = slot;
+            slot = parent;
+        }
+        heap[slot] = item;
+        position[item] = slot;
+    }
+
+    private void siftDown(int slot) {
+        int item = heap[slot];
+        long key = keys[item];
+        while (true) {
+            int first = slot * D + 1;
+            if (first >= size) {
+                break;
+            }
+            int best = first;
+            long bestKey = keys[heap[first]];
+            for (int child = first + 1; child < Math.min(first + D, size); child++) {
+                long childKey = keys[heap[child]];
+                if (childKey < bestKey) {
+                    best = child;
+                    bestKey = childKey;
+                }
+            }
+            if (bestKey >= key) {
+                break;
+            }
+            heap[slot] = heap[best];
+            position[heap[slot]] = slot;
+            slot = best;
+        }
+        heap[slot] = item;
+        position[item] = slot;
+    }
+}
@@ -0,0 +1,180 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+// Parallel Bellman-Ford over a CsrGraph on a fork-join pool. Each round relaxes the out-edges
+// of every vertex whose distance dropped in the round before, split across workers, with an
+// atomic min (compare-and-set loop) on a shared distance array. A vertex joins the next
+// frontier once per round however many edges improve it. Negative weights are fine. Without a
+// negative cycle every distance is final after V - 1 rounds, so an improvement in round V + 1
+// means a negative cycle the source reaches, the same verdict as the sequential version.
+//
+// Distances come out the same whatever order the workers ran in. Predecessors on tied paths
+// do not, so they are worked out afterwards from the final distances, again in parallel. The
+// deterministic mode gives exactly the predecessors sequential Bellman-Ford (and Dijkstra)
+// keep. As Dijkstra explains, v's predecessor is its tight in-edge with the smallest
+// (p(u), u), where p(u) is the Bellman-Ford pass that first scans u at its final distance.
+// p(v) = min over tight in-edges of p(u) + (u > v ? 1 : 0), a 0/1-weight shortest path over
+// the tight edges, so the same parallel rounds compute it. An atomic min on the packed
+// (p(u), u) then picks each predecessor. The fast mode uses plain hop counts instead of
+// passes and lets any tight in-edge with the right hop count win. It still gives shortest
+// paths, and never a cycle, but which one wins a tie depends on thread timing.
+public class ParallelSssp {
+
+    private static final int GRAIN = 1024; // frontier vertices per task
+    private static final long SKIP = Long.MIN_VALUE; // edge does not take part in this relaxation
+
+    private static final Metrics.Histogram ROUNDS = Metrics.histogram("sssp.parallel.rounds", "rounds");
+    private static final Metrics.Counter EDGE_CHECKS = Metrics.counter("sssp.edgeChecks");
+    private static final Metrics.Counter NEGATIVE_CYCLES = Metrics.counter("sssp.negativeCycles");
+
+    private final ForkJoinPool pool;
+    private final boolean deterministic;
+
+    public ParallelSssp(boolean deterministic) {
+        this(ForkJoinPool.commonPool(), deterministic);
+    }
+
+    public ParallelSssp(ForkJoinPool pool, boolean deterministic) {
+        this.pool = pool;
+        this.deterministic = deterministic;
+    }
+
+    // Label a relaxation would give the edge's target, or SKIP
+    private interface Relaxation {
+        long candidate(int u, int edge, int v, long label);
+    }
+
+    public SsspResult shortestPaths(CsrGraph graph, int source) {
+        int n = graph.vertexCount();
+        AtomicLongArray labels = new AtomicLongArray(n);
+        for (int v = 0; v < n; v++) {
+            labels.set(v, SsspResult.UNREACHABLE);
+        }
+        labels.set(source, 0);
+        boolean negativeCycle = !converge(graph, labels, source, (u, e, v, du) -> du + graph.weight(e));
+        long[] distances = toArray(labels);
+        int[] predecessors = new int[n];
+        Arrays.fill(predecessors, -1);
+        if (negativeCycle) {
+            NEGATIVE_CYCLES.increment();
+            return new SsspResult(source, distances, predecessors, true);
+        }
+
+        // Pass (or hop) labels over the tight edges
+        for (int v = 0; v < n; v++) {
+            labels.set(v, SsspResult.UNREACHABLE);
+        }
+        labels.set(source, 1);
+        converge(graph, labels, source, (u, e, v, pu) ->
+                distances[u] + graph.weight(e) == distances[v] ? pu + step(u, v) : SKIP);
+        long[] passes = toArray(labels);
+
+        // Each vertex's predecessor among the tight in-edges that give it its label
+        AtomicLongArray keys = deterministic ? new AtomicLongArray(n) : null;
+        if (keys != null) {
+            for (int v = 0; v < n; v++) {
+                keys.set(v, Long.MAX_VALUE);
+            }
+        }
+        ParallelRange.forEach(pool, 0, n, GRAIN, (lo, hi) -> {
+            for (int u = lo; u < hi; u++) {
+                if (passes[u] == SsspResult.UNREACHABLE) {
+                    continue;
+                }
+                for (int e = graph.begin(u); e < graph.end(u); e++) {
+                    int v = graph.target(e);
+                    if (v == source || distances[u] + graph.weight(e) != distances[v]
+                            || passes[u] + step(u, v) != passes[v]) {
+                        continue;
+                    }
+                    if (keys != null) {
+                        keys.accumulateAndGet(v, (passes[u] << 32) | u, Math::min);
+                    } else {
+                        predecessors[v] = u; // any of them is a valid shortest path
+                    }
+                }
+            }
+        });
+        if (keys != null) {
+            for (int v = 0; v < n; v++) {
+                long key = keys.get(v);
+                predecessors[v] = key == Long.MAX_VALUE ? -1 : (int) key;
+            }
+        }
+        return new SsspResult(source, distances, predecessors, false);
+    }
+
+    // Bellman-Ford's pass step in deterministic mode, a plain hop otherwise
+    private long step(int u, int v) {
+        return deterministic ? (u > v ? 1 : 0) : 1;
+    }
+
+    // Relaxes frontier after frontier until nothing improves. Returns false if labels were
+    // still improving after V rounds, which only a negative cycle causes.
+    private boolean converge(CsrGraph graph, AtomicLongArray labels, int source, Relaxation relaxation) {
+        int n = graph.vertexCount();
+        int[] frontier = new int[n];
+        int[] next = new int[n];
+        frontier[0] = source;
+        int size = 1;
+        AtomicIntegerArray queuedIn = new AtomicIntegerArray(n); // last round that queued each vertex
+        AtomicLong edgeChecks = new AtomicLong();
+        int rounds = 0;
+
+        while (size > 0) {
+            if (rounds == n) {
+                ROUNDS.record(rounds);
+                EDGE_CHECKS.add(edgeChecks.get());
+                return false;
+            }
+            int round = ++rounds;
+            int[] current = frontier;
+            int[] output = next;
+            AtomicInteger tail = new AtomicInteger();
+            ParallelRange.forEach(pool, 0, size, GRAIN, (lo, hi) -> {
+                int[] found = new int[16];
+                int count = 0;
+                long checks = 0;
+                for (int i = lo; i < hi; i++) {
+                    int u = current[i];
+                    long label = labels.get(u);
+                    for (int e = graph.begin(u); e < graph.end(u); e++) {
+                        checks++;
+                        int v = graph.target(e);
+                        long candidate = relaxation.candidate(u, e, v, label);
+                        if (candidate == SKIP) {
+                            continue;
+                        }
+                        long old = labels.get(v);
+                        while (candidate < old && !labels.compareAndSet(v, old, candidate)) {
+                            old = labels.get(v);
+                        }
+                        if (candidate < old && queuedIn.getAndSet(v, round) != round) {
+                            if (count == found.length) {
+                                found = Arrays.copyOf(found, count * 2);
+                            }
+                            found[count++] = v;
+                        }
+                    }
+                }
+                System.arraycopy(found, 0, output, tail.getAndAdd(count), count);
+                edgeChecks.addAndGet(checks);
+            });
+            size = tail.get();
+            frontier = output;
+            next = current;
+        }
+        ROUNDS.record(rounds);
+        EDGE_CHECKS.add(edgeChecks.get());
+        return true;
+    }
+
+    private static long[] toArray(AtomicLongArray labels) {
+        long[] values = new long[labels.length()];
+        for (int v = 0; v < values.length; v++) {
+            values[v] = labels.get(v);
+        }
+        return values;
+    }
+}
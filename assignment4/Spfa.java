@@ -0,0 +1,111 @@
+import java.util.*;
+
+// Queue-based Bellman-Ford (SPFA) over a CsrGraph. Only vertices whose distance just dropped
+// go on the queue, so the run stops as soon as nothing changes instead of always doing V - 1
+// passes over every edge. Two queue-order heuristics usually cut the work further:
+//   SLF (small label first): a vertex whose distance is below the front's joins at the front
+//   LLL (large label last): a front vertex above the queue's mean distance goes to the back
+// The queue is a ring of V + 1 ints, since a vertex is never on it twice.
+//
+// Costs match Bellman-Ford exactly. Paths do too, ties included: the queue order decides which
+// tied edge relaxes a vertex last, so predecessors are rebuilt from the final distances by
+// Dijkstra.bellmanFordPredecessors instead of being recorded during the search.
+//
+// Negative cycles: every vertex records how many edges its current path has. Once a path
+// reaches V edges it repeats a vertex, and that only keeps improving around a negative cycle.
+// Capping how often a vertex is enqueued is the usual shortcut, but with SLF reordering
+// a vertex can be requeued more than V times on a graph with no negative cycle, so the cap
+// would give false verdicts.
+public class Spfa {
+
+    private static final Metrics.Histogram RELAXATIONS = Metrics.histogram("sssp.relaxations", "relaxations");
+    private static final Metrics.Counter EDGE_CHECKS = Metrics.counter("sssp.edgeChecks");
+    private static final Metrics.Counter NEGATIVE_CYCLES = Metrics.counter("sssp.negativeCycles");
+    private static final Metrics.Histogram POPS = Metrics.histogram("sssp.spfa.pops", "vertices");
+
+    private Spfa() {
+    }
+
+    public static SsspResult shortestPaths(CsrGraph graph, int source) {
+        int n = graph.vertexCount();
+        long[] distances = new long[n];
+        int[] pathEdges = new int[n]; // edges on the current path to each vertex
+        boolean[] queued = new boolean[n];
+        Arrays.fill(distances, SsspResult.UNREACHABLE);
+        distances[source] = 0;
+
+        int capacity = n + 1;
+        int[] ring = new int[capacity];
+        int head = 0, tail = 0, size = 0;
+        double queuedSum = 0; // sum of the distances on the queue, for LLL; a double cannot overflow
+        ring[tail] = source;
+        tail = (tail + 1) % capacity;
+        size++;
+        queued[source] = true;
+
+        long relaxations = 0, edgeChecks = 0, pops = 0;
+        boolean negativeCycle = false;
+        search:
+        while (size > 0) {
+            // LLL: rotate large labels to the back. At most size moves, so it always ends.
+            for (int moves = 0; moves < size - 1 && distances[ring[head]] * (double) size > queuedSum; moves++) {
+                ring[tail] = ring[head];
+                tail = (tail + 1) % capacity;
+                head = (head + 1) % capacity;
+            }
+            int u = ring[head];
+            head = (head + 1) % capacity;
+            size--;
+            queued[u] = false;
+            queuedSum -= distances[u];
+            pops++;
+
+            long du = distances[u];
+            for (int e = graph.begin(u); e < graph.end(u); e++) {
+                edgeChecks++;
+                int v = graph.target(e);
+                long candidate = du + graph.weight(e);
+                if (candidate >= distances[v]) {
+                    continue;
+                }
+                if (queued[v]) {
+                    queuedSum -= distances[v];
+                }
+                distances[v] = candidate;
+                pathEdges[v] = pathEdges[u] + 1;
+                relaxations++;
+                if (pathEdges[v] >= n) {
+                    negativeCycle = true;
+                    break search;
+                }
+                if (queued[v]) {
+                    queuedSum += candidate;
+                    continue;
+                }
+                // SLF: smaller than the front goes first
+                if (size > 0 && candidate < distances[ring[head]]) {
+                    head = (head - 1 + capacity) % capacity;
+                    ring[head] = v;
+                } else {
+                    ring[tail] = v;
+                    tail = (tail + 1) % capacity;
+                }
+                size++;
+                queued[v] = true;
+                queuedSum += candidate;
+            }
+        }
+
+        RELAXATIONS.record(relaxations);
+        EDGE_CHECKS.add(edgeChecks);
+        POPS.record(pops);
+        if (negativeCycle) {
+            NEGATIVE_CYCLES.increment();
+            int[] predecessors = new int[n];
+            Arrays.fill(predecessors, -1);
+            return new SsspResult(source, distances, predecessors, true);
+        }
+        int[] predecessors = Dijkstra.bellmanFordPredecessors(graph, source, distances, new IndexedDaryHeap(n));
+        return new SsspResult(source, distances, predecessors, false);
+    }
+}
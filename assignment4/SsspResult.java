@@ -0,0 +1,42 @@
+import java.util.*;
+
+// Single-source shortest paths over a CsrGraph, by dense vertex index.
+// Distances are longs so sums of int weights cannot overflow; UNREACHABLE marks vertices the
+// source cannot reach. predecessors[v] is the vertex before v on its path, -1 for the source
+// and unreached vertices. When negativeCycle is set the distances are meaningless.
+public class SsspResult {
+
+    public static final long UNREACHABLE = Long.MAX_VALUE;
+
+    public final int source;
+    public final long[] distances;
+    public final int[] predecessors;
+    public final boolean negativeCycle;
+
+    public SsspResult(int source, long[] distances, int[] predecessors, boolean negativeCycle) {
+        this.source = source;
+        this.distances = distances;
+        this.predecessors = predecessors;
+        this.negativeCycle = negativeCycle;
+    }
+
+    public boolean reachable(int v) {
+        return distances[v] != UNREACHABLE;
+    }
+
+    // Vertices from the source to v, or an empty list if v is unreachable
+    public int[] path(int v) {
+        if (!reachable(v)) {
+            return new int[0];
+        }
+        int length = 0;
+        for (int at = v; at != -1; at = predecessors[at]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int at = v, i = length - 1; at != -1; at = predecessors[at], i--) {
+            path[i] = at;
+        }
+        return path;
+    }
+}
@@ -0,0 +1,104 @@
+package bench;
+
+import java.util.*;
+
+import org.openjdk.jmh.annotations.*;
+
+// Synthetic catalog and query workload shared by the search benchmarks.
+// Names are built from the same kinds of words as magicitems.txt so that sorted neighbours
+// share long prefixes, then numbered to reach the requested size. Queries are drawn ahead of
+// time so that generating them is not part of the measurement.
+@State(Scope.Benchmark)
+public class Catalog {
+
+    static final int QUERY_COUNT = 1 << 14; // power of two, cursors wrap with a mask
+
+    private static final String[] KINDS = {
+        "Amulet", "Bag", "Boots", "Bracers", "Cloak", "Gloves", "Helm", "Horn", "Potion",
+        "Ring", "Robe", "Rod", "Scroll", "Staff", "Tome", "Wand"
+    };
+    private static final String[] OF = {
+        "Air", "Blinking", "Climbing", "Defense", "Fire", "Flying", "Healing", "Holding",
+        "Invisibility", "Protection", "Resistance", "Speed", "Strength", "Telepathy", "the Eight Skills",
+        "the Merciful Blow", "Understanding", "Warmth", "Wishes", "Wonder"
+    };
+
+    @Param({"1000", "100000", "1000000"})
+    public int catalogSize;
+
+    // Fraction of queries that name an item in the catalog
+    @Param({"1.0", "0.5", "0.0"})
+    public double hitRatio;
+
+    // UNIFORM picks hits evenly; ZIPF skews them towards a few hot items, as real traffic does
+    @Param({"UNIFORM", "ZIPF"})
+    public String distribution;
+
+    public List<String> items; // in load order
+    public List<String> sortedItems;
+    public String[] queries;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42);
+        items = new ArrayList<>(catalogSize);
+        for (int i = 0; i < catalogSize; i++) {
+            items.add(name(random) + " +" + i);
+        }
+        Collections.shuffle(items, new Random(random.nextLong()));
+        String[] sorted = items.toArray(new String[0]);
+        Arrays.sort(sorted);
+        sortedItems = Arrays.asList(sorted);
+
+        double[] zipf = "ZIPF".equals(distribution) ? zipfCdf(catalogSize, 1.0) : null;
+        queries = new String[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            if (random.nextDouble() < hitRatio) {
+                int rank = zipf == null ? random.nextInt(catalogSize) : sampleZipf(zipf, random.nextDouble());
+                // Hot ranks map to shuffled items so popular keys are spread over the sorted order
+                queries[i] = items.get(rank);
+            } else {
+                // The catalog only uses non-negative numbers, so these always miss
+                queries[i] = name(random) + " +-" + random.nextInt(catalogSize);
+            }
+        }
+    }
+
+    private static String name(SplittableRandom random) {
+        return KINDS[random.nextInt(KINDS.length)] + " of " + OF[random.nextInt(OF.length)];
+    }
+
+    private static double[] zipfCdf(int n, double skew) {
+        double[] cdf = new double[n];
+        double total = 0;
+        for (int rank = 0; rank < n; rank++) {
+            total += 1.0 / Math.pow(rank + 1, skew);
+            cdf[rank] = total;
+        }
+        for (int rank = 0; rank < n; rank++) {
+            cdf[rank] /= total;
+        }
+        return cdf;
+    }
+
+    private static int sampleZipf(double[] cdf, double u) {
+        int rank = Arrays.binarySearch(cdf, u);
+        return Math.min(cdf.length - 1, rank >= 0 ? rank : -rank - 1);
+    }
+
+    // Per-thread position in the query array plus a scratch comparison counter
+    @State(Scope.Thread)
+    public static class Cursor {
+        final int[] comparisonCount = {0};
+        private int position;
+
+        String next(Catalog catalog) {
+            return catalog.queries[nextIndex()];
+        }
+
+        // Index of the next query, for states that keep something per query
+        int nextIndex() {
+            return position++ & (QUERY_COUNT - 1);
+        }
+    }
+}
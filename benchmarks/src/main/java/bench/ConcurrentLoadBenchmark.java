@@ -0,0 +1,56 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Lookups in ConcurrentHashIndex while a loader thread keeps reloading the catalog into it.
+// The loader adds one item per call and starts over in a fresh, small index once every item is
+// in, so the readers run through resizes the whole time. Compare the reader score with the
+// loader removed (-tg 3,0, thread counts go in method name order) to see what the concurrent
+// load costs them.
+//
+//   java -jar target/benchmarks.jar ConcurrentLoadBenchmark -p catalogSize=100000
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentLoadBenchmark {
+
+    @Benchmark
+    @Group("reload")
+    @GroupThreads(1)
+    public boolean load(Catalog catalog, Index index) throws Throwable {
+        return (boolean) Targets.CONCURRENT_ADD.invokeExact(index.nextTable(catalog), catalog.items.get(index.loaded++));
+    }
+
+    @Benchmark
+    @Group("reload")
+    @GroupThreads(3)
+    public boolean find(Catalog catalog, Index index, Catalog.Cursor cursor) throws Throwable {
+        return (boolean) Targets.CONCURRENT_FIND.invokeExact(index.table, cursor.next(catalog), cursor.comparisonCount);
+    }
+
+    // Shared by the threads of one group. Only the loader writes loaded, and it swaps in the
+    // next table through the volatile field the readers follow.
+    @State(Scope.Group)
+    public static class Index {
+        volatile Object table;
+        int loaded;
+
+        @Setup(Level.Trial)
+        public void setup() throws Throwable {
+            table = (Object) Targets.NEW_CONCURRENT_INDEX.invokeExact(16);
+        }
+
+        // The table to add to, a fresh one after the catalog has been loaded in full
+        Object nextTable(Catalog catalog) throws Throwable {
+            if (loaded == catalog.items.size()) {
+                table = (Object) Targets.NEW_CONCURRENT_INDEX.invokeExact(16);
+                loaded = 0;
+            }
+            return table;
+        }
+    }
+}
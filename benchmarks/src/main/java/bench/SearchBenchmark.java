@@ -0,0 +1,131 @@
+package bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Throughput and latency of a single lookup in each search structure.
+// Each benchmark returns the found index, comparison count or result list so the JIT cannot
+// drop the call.
+//
+//   java -jar target/benchmarks.jar SearchBenchmark -p catalogSize=100000 -p hitRatio=0.5
+//
+// SampleTime mode reports latency percentiles alongside the average.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Benchmark
+    public int linearSearch(Catalog catalog, Catalog.Cursor cursor) throws Throwable {
+        return (int) Targets.LINEAR_SEARCH.invokeExact(catalog.sortedItems, cursor.next(catalog), cursor.comparisonCount);
+    }
+
+    @Benchmark
+    public int binarySearch(Catalog catalog, Catalog.Cursor cursor) throws Throwable {
+        return (int) Targets.BINARY_SEARCH.invokeExact(catalog.sortedItems, cursor.next(catalog), cursor.comparisonCount);
+    }
+
+    @Benchmark
+    public int retrieveFromHashTable(Catalog catalog, HashTable table, Catalog.Cursor cursor) throws Throwable {
+        return (int) Targets.RETRIEVE_FROM_HASH_TABLE.invokeExact(cursor.next(catalog));
+    }
+
+    @Benchmark
+    public int bstFind(Catalog catalog, Bst bst, Catalog.Cursor cursor) throws Throwable {
+        return (int) Targets.BST_FIND.invokeExact(bst.tree, cursor.next(catalog));
+    }
+
+    @Benchmark
+    public int eytzingerSearch(Catalog catalog, Eytzinger eytzinger, Catalog.Cursor cursor) throws Throwable {
+        return (int) Targets.EYTZINGER_SEARCH.invokeExact(eytzinger.index, cursor.next(catalog), cursor.comparisonCount);
+    }
+
+    @Benchmark
+    public int frontCodedSearch(Catalog catalog, FrontCoded frontCoded, Catalog.Cursor cursor) throws Throwable {
+        return (int) Targets.FRONT_CODED_SEARCH.invokeExact(frontCoded.dictionary, cursor.next(catalog), cursor.comparisonCount);
+    }
+
+    // Prefix queries are the first PREFIX_LENGTH characters of each query, so hits and misses
+    // follow the catalog's hitRatio only roughly: a missing name can share a prefix with items
+    @Benchmark
+    public List<?> prefixStartingWith(Prefix prefix, Catalog.Cursor cursor) throws Throwable {
+        return (List<?>) Targets.PREFIX_STARTING_WITH.invokeExact(prefix.index, prefix.next(cursor), cursor.comparisonCount);
+    }
+
+    @Benchmark
+    public List<?> prefixComplete(Prefix prefix, Catalog.Cursor cursor) throws Throwable {
+        return (List<?>) Targets.PREFIX_COMPLETE.invokeExact(prefix.index, prefix.next(cursor), Prefix.COMPLETIONS,
+                                                            cursor.comparisonCount);
+    }
+
+    // MagicItemsSearch keeps its hash table in a static field, one load per forked JVM
+    @State(Scope.Benchmark)
+    public static class HashTable {
+        @Setup(Level.Trial)
+        public void setup(Catalog catalog) throws Throwable {
+            Targets.LOAD_HASH_TABLE.invokeExact(catalog.items);
+        }
+    }
+
+    // The balanced tree Assignment3 searches, built without path logging
+    @State(Scope.Benchmark)
+    public static class Bst {
+        Object tree;
+
+        @Setup(Level.Trial)
+        public void setup(Catalog catalog) throws Throwable {
+            tree = (Object) Targets.NEW_BST.invokeExact();
+            for (String item : catalog.items) {
+                Targets.BST_INSERT.invokeExact(tree, item);
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Eytzinger {
+        Object index;
+
+        @Setup(Level.Trial)
+        public void setup(Catalog catalog) throws Throwable {
+            index = (Object) Targets.NEW_EYTZINGER.invokeExact(catalog.sortedItems);
+        }
+    }
+
+    // Case-sensitive index over the items, with the query prefixes cut ahead of time
+    @State(Scope.Benchmark)
+    public static class Prefix {
+        static final int PREFIX_LENGTH = 10;
+        static final int COMPLETIONS = 10;
+
+        Object index;
+        String[] prefixes;
+
+        @Setup(Level.Trial)
+        public void setup(Catalog catalog) throws Throwable {
+            index = (Object) Targets.NEW_PREFIX_INDEX.invokeExact(catalog.items, false);
+            prefixes = new String[Catalog.QUERY_COUNT];
+            for (int i = 0; i < prefixes.length; i++) {
+                String query = catalog.queries[i];
+                prefixes[i] = query.substring(0, Math.min(PREFIX_LENGTH, query.length()));
+            }
+        }
+
+        String next(Catalog.Cursor cursor) {
+            return prefixes[cursor.nextIndex()];
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class FrontCoded {
+        Object dictionary;
+
+        @Setup(Level.Trial)
+        public void setup(Catalog catalog) throws Throwable {
+            dictionary = (Object) Targets.NEW_FRONT_CODED.invokeExact(catalog.sortedItems);
+        }
+    }
+}
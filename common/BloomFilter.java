@@ -0,0 +1,129 @@
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+// Blocked Bloom filter over item names, used to turn away definite misses before a search
+// structure is touched. All the bits for one key sit in a single 512-bit block, one cache line,
+// so a query costs one memory access however many hash bits it checks. A negative answer is
+// always right; a positive one is wrong with the false-positive rate reported below.
+public class BloomFilter {
+
+    private static final int BLOCK_WORDS = 8; // 8 longs = 512 bits = one cache line
+    private static final int BLOCK_BITS = BLOCK_WORDS * Long.SIZE;
+
+    private final long[] words;
+    private final int blockMask;
+    private final int hashCount;
+    private int items;
+
+    // Query statistics, striped so concurrent searches can share one filter
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    // Sizes the filter for the expected number of items at the target false-positive rate
+    public BloomFilter(int expectedItems, double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False-positive rate must be between 0 and 1: " + falsePositiveRate);
+        }
+        int n = Math.max(expectedItems, 1);
+        double bits = -n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        int blocks = Integer.highestOneBit((int) Math.min(1 << 26, Math.ceil(bits / BLOCK_BITS)));
+        if (blocks * (long) BLOCK_BITS < bits) {
+            blocks = Math.min(1 << 26, blocks << 1);
+        }
+        words = new long[blocks * BLOCK_WORDS];
+        blockMask = blocks - 1;
+        hashCount = Math.max(1, (int) Math.round(bits / n * Math.log(2)));
+    }
+
+    public static BloomFilter of(Collection<String> items, double falsePositiveRate) {
+        BloomFilter filter = new BloomFilter(items.size(), falsePositiveRate);
+        for (String item : items) {
+            filter.add(item);
+        }
+        return filter;
+    }
+
+    // 64-bit FNV-1a over the chars followed by the murmur3 finalizer
+    static long hash64(String str) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < str.length(); i++) {
+            h ^= str.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    public void add(String item) {
+        long h = hash64(item);
+        int base = ((int) (h >>> 32) & blockMask) * BLOCK_WORDS;
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 9) | 1; // low bits pick bits in the block, high bits pick the block
+        for (int i = 0; i < hashCount; i++) {
+            int bit = (h1 + i * h2) & (BLOCK_BITS - 1);
+            words[base + (bit >>> 6)] |= 1L << bit;
+        }
+        items++;
+    }
+
+    // False means the item is definitely absent. Adds one probe per bit checked.
+    public boolean mightContain(String item, int[] probeCount) {
+        queries.increment();
+        long h = hash64(item);
+        int base = ((int) (h >>> 32) & blockMask) * BLOCK_WORDS;
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 9) | 1; // low bits pick bits in the block, high bits pick the block
+        for (int i = 0; i < hashCount; i++) {
+            probeCount[0]++;
+            int bit = (h1 + i * h2) & (BLOCK_BITS - 1);
+            if ((words[base + (bit >>> 6)] & (1L << bit)) == 0) {
+                rejections.increment();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean mightContain(String item) {
+        return mightContain(item, new int[1]);
+    }
+
+    // False-positive rate implied by how full the filter actually is: a miss gets through
+    // only if every bit it checks happens to be set. Averaged block by block, since a miss
+    // only ever checks the one block it hashes to and some blocks fill up more than others.
+    public double estimatedFalsePositiveRate() {
+        double total = 0;
+        for (int base = 0; base < words.length; base += BLOCK_WORDS) {
+            int set = 0;
+            for (int i = 0; i < BLOCK_WORDS; i++) {
+                set += Long.bitCount(words[base + i]);
+            }
+            total += Math.pow((double) set / BLOCK_BITS, hashCount);
+        }
+        return total / (blockMask + 1);
+    }
+
+    public int hashCount() {
+        return hashCount;
+    }
+
+    public long sizeInBits() {
+        return (long) words.length * Long.SIZE;
+    }
+
+    public int itemCount() {
+        return items;
+    }
+
+    public long queryCount() {
+        return queries.sum();
+    }
+
+    public long rejectionCount() {
+        return rejections.sum();
+    }
+}
@@ -0,0 +1,357 @@
+import java.nio.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Immutable graph in compressed sparse row form, shared by the assignment 3 traversals and the
+// assignment 4 shortest paths. Vertex ids are interned to dense ints 0..V-1 in the order they
+// are added, and the out-edges of vertex v are edge slots begin(v) .. end(v)-1 of one targets
+// array (plus a weights array when the graph has weights). A million edges cost a few int
+// arrays instead of a million Edge objects, and walking a vertex's edges reads memory in order.
+//
+// Callers only go through the accessors below, never the arrays, so the storage behind them
+// can change without touching the algorithms. The arrays are IntBuffers: heap arrays for a
+// graph built here, or views of a memory-mapped GraphSnapshot, whose ids are then decoded
+// only when asked for.
+public class CsrGraph {
+
+    private final String[] ids; // id of each dense vertex index, filled in lazily when mapped
+    private final ByteBuffer idData; // UTF-8 ids of a mapped graph, null when built on the heap
+    private final IntBuffer idOffsets; // id v is idData[idOffsets[v] .. idOffsets[v + 1])
+    private volatile Map<String, Integer> indexes; // built on first lookup when mapped
+    private final IntBuffer offsets; // edges of v are offsets[v] .. offsets[v + 1] - 1
+    private final IntBuffer targets;
+    private final IntBuffer weights; // null for an unweighted graph
+    private final boolean directed;
+    private int negativeWeights; // 1 if any weight is below zero, 0 if none, -1 until checked
+
+    private CsrGraph(String[] ids, ByteBuffer idData, IntBuffer idOffsets, Map<String, Integer> indexes,
+                     IntBuffer offsets, IntBuffer targets, IntBuffer weights, boolean directed) {
+        this.ids = ids;
+        this.idData = idData;
+        this.idOffsets = idOffsets;
+        this.indexes = indexes;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.directed = directed;
+        this.negativeWeights = -1;
+    }
+
+    // A graph over buffers laid out like the ones build() makes, used by GraphSnapshot.
+    // idOffsets has vertexCount + 1 entries into idData; nothing is copied.
+    static CsrGraph wrap(ByteBuffer idData, IntBuffer idOffsets, IntBuffer offsets, IntBuffer targets,
+                         IntBuffer weights, boolean directed) {
+        int n = offsets.limit() - 1;
+        return new CsrGraph(new String[n], idData, idOffsets, null, offsets, targets, weights, directed);
+    }
+
+    public int vertexCount() {
+        return ids.length;
+    }
+
+    // Number of edge slots. An undirected edge fills one slot in each direction.
+    public int edgeCount() {
+        return targets.limit();
+    }
+
+    public boolean isDirected() {
+        return directed;
+    }
+
+    public boolean isWeighted() {
+        return weights != null;
+    }
+
+    public String id(int v) {
+        String id = ids[v];
+        if (id == null) {
+            // Decoding twice from two threads is harmless, both get equal Strings
+            int from = idOffsets.get(v);
+            byte[] bytes = new byte[idOffsets.get(v + 1) - from];
+            idData.get(from, bytes);
+            id = new String(bytes, StandardCharsets.UTF_8);
+            ids[v] = id;
+        }
+        return id;
+    }
+
+    // Dense index of an id, or -1 if the graph has no such vertex
+    public int indexOf(String id) {
+        Integer index = indexes().get(id);
+        return index == null ? -1 : index;
+    }
+
+    private Map<String, Integer> indexes() {
+        Map<String, Integer> map = indexes;
+        if (map == null) {
+            map = new HashMap<>();
+            for (int v = 0; v < ids.length; v++) {
+                map.putIfAbsent(id(v), v);
+            }
+            indexes = map;
+        }
+        return map;
+    }
+
+    // First edge slot of v
+    public int begin(int v) {
+        return offsets.get(v);
+    }
+
+    // One past the last edge slot of v
+    public int end(int v) {
+        return offsets.get(v + 1);
+    }
+
+    public int degree(int v) {
+        return offsets.get(v + 1) - offsets.get(v);
+    }
+
+    public int target(int edge) {
+        return targets.get(edge);
+    }
+
+    // Whether any edge weight is negative, worked out once per graph. Shortest-path code uses
+    // it to pick an algorithm.
+    public boolean hasNegativeWeights() {
+        if (negativeWeights < 0) {
+            int found = 0;
+            for (int e = 0; weights != null && e < weights.limit(); e++) {
+                if (weights.get(e) < 0) {
+                    found = 1;
+                    break;
+                }
+            }
+            negativeWeights = found; // another thread doing the same scan gets the same answer
+        }
+        return negativeWeights == 1;
+    }
+
+    // Weight of an edge slot, 1 for an unweighted graph
+    public int weight(int edge) {
+        return weights == null ? 1 : weights.get(edge);
+    }
+
+    // Vertex indexes sorted by their ids under the given order
+    public int[] verticesInOrder(Comparator<String> idOrder) {
+        for (int v = 0; v < ids.length; v++) {
+            id(v); // decode any ids not seen yet
+        }
+        return sortedIndexes(ids, idOrder);
+    }
+
+    private static int[] sortedIndexes(String[] ids, Comparator<String> idOrder) {
+        Integer[] order = new Integer[ids.length];
+        for (int v = 0; v < order.length; v++) {
+            order[v] = v;
+        }
+        Arrays.sort(order, (a, b) -> idOrder.compare(ids[a], ids[b]));
+        int[] vertices = new int[order.length];
+        for (int i = 0; i < vertices.length; i++) {
+            vertices[i] = order[i];
+        }
+        return vertices;
+    }
+
+    // Collects vertices and edges, then lays them out in CSR form in one counting pass.
+    // Edges keep the order they were added in unless sortNeighbors is set.
+    public static class Builder {
+        private final boolean directed;
+        private final boolean weighted;
+        private final List<String> ids = new ArrayList<>();
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private int[] sources = new int[16];
+        private int[] targets = new int[16];
+        private int[] weights;
+        private int edges;
+        private boolean dedupe;
+        private Comparator<String> neighborOrder;
+
+        public Builder(boolean directed, boolean weighted) {
+            this.directed = directed;
+            this.weighted = weighted;
+            this.weights = weighted ? new int[16] : null;
+        }
+
+        // Keep only the first edge from a vertex to any one target
+        public Builder dedupe(boolean dedupe) {
+            this.dedupe = dedupe;
+            return this;
+        }
+
+        // Sort each vertex's neighbors by id under this order (equal ids keep insertion order)
+        public Builder sortNeighbors(Comparator<String> idOrder) {
+            this.neighborOrder = idOrder;
+            return this;
+        }
+
+        // Interns the id and returns its dense index. Adding an existing id returns its index.
+        public int addVertex(String id) {
+            Integer index = indexes.get(id);
+            if (index != null) {
+                return index;
+            }
+            indexes.put(id, ids.size());
+            ids.add(id);
+            return ids.size() - 1;
+        }
+
+        public boolean hasVertex(String id) {
+            return indexes.containsKey(id);
+        }
+
+        // Dense index of an id added so far, or -1
+        public int indexOf(String id) {
+            Integer index = indexes.get(id);
+            return index == null ? -1 : index;
+        }
+
+        public int vertexCount() {
+            return ids.size();
+        }
+
+        // Adds u -> v (and v -> u when undirected). Returns false, adding nothing, if either
+        // vertex has not been added.
+        public boolean addEdge(String u, String v, int weight) {
+            int from = indexOf(u);
+            int to = indexOf(v);
+            if (from < 0 || to < 0) {
+                return false;
+            }
+            addEdge(from, to, weight);
+            return true;
+        }
+
+        public boolean addEdge(String u, String v) {
+            return addEdge(u, v, 1);
+        }
+
+        // Same by dense index, for callers that already looked the vertices up
+        public void addEdge(int from, int to, int weight) {
+            addSlot(from, to, weight);
+            if (!directed) {
+                addSlot(to, from, weight);
+            }
+        }
+
+        private void addSlot(int from, int to, int weight) {
+            if (edges == sources.length) {
+                int capacity = edges * 2;
+                sources = Arrays.copyOf(sources, capacity);
+                targets = Arrays.copyOf(targets, capacity);
+                if (weighted) {
+                    weights = Arrays.copyOf(weights, capacity);
+                }
+            }
+            sources[edges] = from;
+            targets[edges] = to;
+            if (weighted) {
+                weights[edges] = weight;
+            }
+            edges++;
+        }
+
+        public CsrGraph build() {
+            int n = ids.size();
+            int[] offsets = new int[n + 1];
+            for (int e = 0; e < edges; e++) {
+                offsets[sources[e] + 1]++;
+            }
+            for (int v = 0; v < n; v++) {
+                offsets[v + 1] += offsets[v];
+            }
+            // Stable scatter by source keeps each vertex's edges in insertion order
+            int[] next = Arrays.copyOf(offsets, n);
+            int[] csrTargets = new int[edges];
+            int[] csrWeights = weighted ? new int[edges] : null;
+            for (int e = 0; e < edges; e++) {
+                int slot = next[sources[e]]++;
+                csrTargets[slot] = targets[e];
+                if (weighted) {
+                    csrWeights[slot] = weights[e];
+                }
+            }
+
+            String[] idArray = ids.toArray(new String[0]);
+            if (neighborOrder != null) {
+                sortRanges(offsets, csrTargets, csrWeights, ranks(idArray, neighborOrder));
+            }
+            if (dedupe) {
+                int total = dedupeRanges(offsets, csrTargets, csrWeights, n);
+                csrTargets = Arrays.copyOf(csrTargets, total);
+                csrWeights = weighted ? Arrays.copyOf(csrWeights, total) : null;
+            }
+            return new CsrGraph(idArray, null, null, new HashMap<>(indexes), IntBuffer.wrap(offsets),
+                                IntBuffer.wrap(csrTargets), csrWeights == null ? null : IntBuffer.wrap(csrWeights),
+                                directed);
+        }
+
+        // Position of every vertex when the ids are sorted, so neighbor sorting compares ints
+        private static int[] ranks(String[] ids, Comparator<String> idOrder) {
+            int[] order = sortedIndexes(ids, idOrder);
+            int[] rank = new int[ids.length];
+            for (int i = 0; i < order.length; i++) {
+                rank[order[i]] = i;
+            }
+            return rank;
+        }
+
+        // Sorts each vertex's edge range by target rank. Keys pack (rank, old slot) into a long,
+        // so a plain sort is stable and the weights follow their targets.
+        private static void sortRanges(int[] offsets, int[] targets, int[] weights, int[] rank) {
+            int maxDegree = 0;
+            for (int v = 0; v + 1 < offsets.length; v++) {
+                maxDegree = Math.max(maxDegree, offsets[v + 1] - offsets[v]);
+            }
+            long[] keys = new long[maxDegree];
+            int[] sortedTargets = new int[maxDegree];
+            int[] sortedWeights = weights == null ? null : new int[maxDegree];
+            for (int v = 0; v + 1 < offsets.length; v++) {
+                int from = offsets[v], degree = offsets[v + 1] - from;
+                if (degree < 2) {
+                    continue;
+                }
+                for (int i = 0; i < degree; i++) {
+                    keys[i] = ((long) rank[targets[from + i]] << 32) | i;
+                }
+                Arrays.sort(keys, 0, degree);
+                for (int i = 0; i < degree; i++) {
+                    int slot = from + (int) keys[i];
+                    sortedTargets[i] = targets[slot];
+                    if (weights != null) {
+                        sortedWeights[i] = weights[slot];
+                    }
+                }
+                System.arraycopy(sortedTargets, 0, targets, from, degree);
+                if (weights != null) {
+                    System.arraycopy(sortedWeights, 0, weights, from, degree);
+                }
+            }
+        }
+
+        // Compacts the edge arrays in place, dropping repeated targets within each range.
+        // Rewrites offsets and returns the new edge count.
+        private static int dedupeRanges(int[] offsets, int[] targets, int[] weights, int n) {
+            int[] lastSeen = new int[n]; // range index + 1 that last wrote each target
+            int write = 0;
+            int start = 0;
+            for (int v = 0; v < n; v++) {
+                int end = offsets[v + 1];
+                offsets[v] = write;
+                for (int e = start; e < end; e++) {
+                    if (lastSeen[targets[e]] != v + 1) {
+                        lastSeen[targets[e]] = v + 1;
+                        targets[write] = targets[e];
+                        if (weights != null) {
+                            weights[write] = weights[e];
+                        }
+                        write++;
+                    }
+                }
+                start = end;
+            }
+            offsets[n] = write;
+            return write;
+        }
+    }
+}
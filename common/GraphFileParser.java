@@ -0,0 +1,512 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+// Streaming reader for the graph files of assignments 3 and 4:
+//
+//   new graph
+//   add vertex <id>
+//   add edge <u> - <v>            (assignment 3)
+//   add edge <u> - <v> <weight>   (assignment 4)
+//
+// The input is read in large blocks and cut into sections at each "new graph" line without
+// decoding anything. Every section is an independent graph, so each one is parsed, built and
+// handed to the GraphHandler on the executor while the reader moves on. Output from the
+// handlers is buffered per graph and written in file order, so the result is the same as
+// handling the graphs one after another.
+//
+// Lines are matched as bytes: the only Strings made are one per distinct vertex id (the graph
+// keeps those) and the text of a line that gets reported as invalid. Lines are trimmed like
+// String.trim, lines that are not one of the commands above (comments, blanks) are skipped, and
+// anything before the first "new graph" is parsed for errors but never handled.
+public class GraphFileParser {
+
+    private static final Metrics.Timer PARSE_TIME = Metrics.timer("graphfile.parse");
+    private static final Metrics.Counter EDGES = Metrics.counter("graphfile.edges");
+    private static final Metrics.Counter INVALID_EDGES = Metrics.counter("graphfile.invalidEdges");
+    private static final Metrics.Counter SNAPSHOT_LOADS = Metrics.counter("graphfile.snapshot.loads");
+    private static final Metrics.Counter SNAPSHOT_WRITES = Metrics.counter("graphfile.snapshot.writes");
+
+    private static final byte[] NEW_GRAPH = ascii("new graph");
+    private static final byte[] ADD_VERTEX = ascii("add vertex");
+    private static final byte[] ADD_EDGE = ascii("add edge");
+
+    private static final int READ_SIZE = 1 << 16;
+
+    // What to do with each graph. Runs on the executor, possibly for several graphs at once,
+    // and writes its output to out rather than System.out. components holds the graph's
+    // connected components when the parser tracks them, null otherwise.
+    public interface GraphHandler {
+        void handle(CsrGraph graph, UnionFind components, PrintStream out);
+    }
+
+    private final Supplier<CsrGraph.Builder> newGraph;
+    private final boolean weighted;
+    private final Executor executor;
+    private final int maxInFlight; // graphs read ahead of the one being written
+    private boolean trackComponents;
+
+    // weighted selects the assignment 4 edge syntax. Graphs are handled on the common pool.
+    public GraphFileParser(Supplier<CsrGraph.Builder> newGraph, boolean weighted) {
+        this(newGraph, weighted, ForkJoinPool.commonPool(), 4 * ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    // Runnable::run as the executor handles every graph on the reading thread
+    public GraphFileParser(Supplier<CsrGraph.Builder> newGraph, boolean weighted, Executor executor, int maxInFlight) {
+        this.newGraph = newGraph;
+        this.weighted = weighted;
+        this.executor = executor;
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    // Feed every vertex and valid edge to a UnionFind as it is parsed, so connectivity is
+    // known the moment a graph's last line is read. Edges join components in both directions.
+    public GraphFileParser trackComponents(boolean track) {
+        this.trackComponents = track;
+        return this;
+    }
+
+    // Reads the whole stream, handling every graph in it. Handler output goes to System.out
+    // and invalid lines are reported on System.err, both in file order.
+    public void process(InputStream in, GraphHandler handler) throws IOException {
+        process(in, null, handler);
+    }
+
+    // Same, for a stream read from source, keeping a GraphSnapshot of it next to the file. While
+    // the snapshot is current the stream is not read at all and the graphs are mapped from the
+    // snapshot; otherwise the text is parsed and the snapshot written again as it goes. A null
+    // source means no snapshot.
+    public void process(InputStream in, Path source, GraphHandler handler) throws IOException {
+        if (source == null) {
+            try (Pipeline pipeline = new Pipeline(handler, null)) {
+                split(in, pipeline);
+                pipeline.finish();
+            }
+            return;
+        }
+        Path cache = GraphSnapshot.cacheFile(source);
+        GraphSnapshot snapshot = GraphSnapshot.openIfCurrent(cache, source, weighted);
+        if (snapshot != null) {
+            SNAPSHOT_LOADS.increment();
+            try (Pipeline pipeline = new Pipeline(handler, null)) {
+                for (GraphSnapshot.Section section : snapshot.sections()) {
+                    // The snapshot has no component data, rebuild it from the mapped edges
+                    pipeline.submit(() -> new Output(section.isGraph, new StringBuilder(section.errors), section.graph,
+                                                     trackComponents ? UnionFind.of(section.graph) : null));
+                }
+                pipeline.finish();
+            }
+            return;
+        }
+        try (Pipeline pipeline = new Pipeline(handler, new GraphSnapshot.Writer(cache, source, weighted))) {
+            split(in, pipeline);
+            pipeline.finish();
+        }
+    }
+
+    // Cuts the stream into sections and hands each one to the pipeline to parse
+    private void split(InputStream in, Pipeline pipeline) throws IOException {
+        byte[] buffer = new byte[2 * READ_SIZE];
+        int limit = 0; // bytes read into buffer
+        int sectionStart = 0; // first byte of the section being collected
+        int lineStart = 0; // first line not yet looked at
+        boolean inGraph = false; // the section being collected began with "new graph"
+        boolean eof = false;
+
+        while (lineStart < limit || !eof) {
+            int lineEnd = indexOf(buffer, (byte) '\n', lineStart, limit);
+            if (lineEnd < 0 && !eof) {
+                // Drop the sections already handed off, grow if one section fills the buffer
+                if (sectionStart > 0) {
+                    System.arraycopy(buffer, sectionStart, buffer, 0, limit - sectionStart);
+                    limit -= sectionStart;
+                    lineStart -= sectionStart;
+                    sectionStart = 0;
+                }
+                if (buffer.length - limit < READ_SIZE) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                int read = in.read(buffer, limit, buffer.length - limit);
+                if (read < 0) {
+                    eof = true;
+                } else {
+                    limit += read;
+                }
+                continue;
+            }
+            if (lineEnd < 0) {
+                lineEnd = limit; // last line has no newline
+            }
+            if (startsWith(buffer, skipSpace(buffer, lineStart, lineEnd), lineEnd, NEW_GRAPH)) {
+                if (inGraph || lineStart > sectionStart) {
+                    submitSection(pipeline, Arrays.copyOfRange(buffer, sectionStart, lineStart), inGraph);
+                }
+                sectionStart = lineStart;
+                inGraph = true;
+            }
+            lineStart = Math.min(lineEnd + 1, limit);
+        }
+        if (inGraph || limit > sectionStart) {
+            submitSection(pipeline, Arrays.copyOfRange(buffer, sectionStart, limit), inGraph);
+        }
+    }
+
+    private void submitSection(Pipeline pipeline, byte[] section, boolean isGraph) throws IOException {
+        pipeline.submit(() -> {
+            StringBuilder errors = new StringBuilder();
+            Metrics.Span span = PARSE_TIME.start();
+            UnionFind components = trackComponents ? new UnionFind() : null;
+            CsrGraph graph = parse(section, 0, section.length, errors, components);
+            span.stop();
+            return new Output(isGraph, errors, graph, components);
+        });
+    }
+
+    // Runs sections on the executor and writes them out in the order they were submitted,
+    // adding each one to the snapshot (if any) as it goes
+    private final class Pipeline implements Closeable {
+        private final Deque<CompletableFuture<Output>> pending = new ArrayDeque<>();
+        private final GraphHandler handler;
+        private final GraphSnapshot.Writer snapshot;
+
+        Pipeline(GraphHandler handler, GraphSnapshot.Writer snapshot) {
+            this.handler = handler;
+            this.snapshot = snapshot;
+        }
+
+        // Starts a section, then writes out every finished section at the head of the queue,
+        // waiting on the head once too many are in flight
+        void submit(Supplier<Output> section) throws IOException {
+            pending.add(CompletableFuture.supplyAsync(() -> handle(section.get()), executor));
+            while (pending.size() > maxInFlight || (!pending.isEmpty() && pending.peek().isDone())) {
+                write(pending.poll());
+            }
+        }
+
+        private Output handle(Output output) {
+            if (output.isGraph) {
+                PrintStream out = new PrintStream(output.text);
+                handler.handle(output.graph, output.components, out);
+                out.flush();
+            }
+            return output;
+        }
+
+        private void write(CompletableFuture<Output> future) throws IOException {
+            Output output;
+            try {
+                output = future.join();
+            } catch (CompletionException e) {
+                // Fail the way the handler would have failed on this thread
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw e;
+            }
+            if (output.errors.length() > 0) {
+                System.err.print(output.errors);
+            }
+            output.text.writeTo(System.out);
+            if (snapshot != null) {
+                snapshot.add(output.isGraph, output.errors.toString(), output.graph);
+            }
+        }
+
+        // Writes out everything still in flight and completes the snapshot
+        void finish() throws IOException {
+            while (!pending.isEmpty()) {
+                write(pending.poll());
+            }
+            if (snapshot != null) {
+                snapshot.finish();
+                SNAPSHOT_WRITES.increment();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (snapshot != null) {
+                snapshot.close();
+            }
+        }
+    }
+
+    // Builds the graph in bytes[from, to), appending a line to errors for every invalid edge.
+    // Vertices and edges also go to components unless it is null.
+    public CsrGraph parse(byte[] bytes, int from, int to, StringBuilder errors, UnionFind components) {
+        CsrGraph.Builder graph = newGraph.get();
+        IdTable vertices = new IdTable();
+        int edgeCount = 0;
+        int lineStart = from;
+        while (lineStart < to) {
+            int lineEnd = indexOf(bytes, (byte) '\n', lineStart, to);
+            if (lineEnd < 0) {
+                lineEnd = to;
+            }
+            int start = skipSpace(bytes, lineStart, lineEnd);
+            int end = trimEnd(bytes, start, lineEnd);
+            lineStart = lineEnd + 1;
+
+            if (startsWith(bytes, start, end, NEW_GRAPH)) {
+                continue; // the section header
+            }
+            if (startsWith(bytes, start, end, ADD_VERTEX)) {
+                int idStart = skipSpace(bytes, start + ADD_VERTEX.length, end);
+                if (vertices.find(bytes, idStart, end) < 0) {
+                    String id = new String(bytes, idStart, end - idStart, StandardCharsets.UTF_8);
+                    int index = graph.addVertex(id);
+                    vertices.add(bytes, idStart, end, index);
+                    if (components != null && index == components.size()) {
+                        components.addVertex();
+                    }
+                }
+            } else if (startsWith(bytes, start, end, ADD_EDGE)) {
+                String error = weighted
+                        ? addWeightedEdge(graph, vertices, components, bytes, start + ADD_EDGE.length, end)
+                        : addEdge(graph, vertices, components, bytes, start + ADD_EDGE.length, end);
+                if (error == null) {
+                    edgeCount++;
+                } else {
+                    INVALID_EDGES.increment();
+                    errors.append(error).append(": ")
+                          .append(new String(bytes, start, end - start, StandardCharsets.UTF_8))
+                          .append(System.lineSeparator());
+                }
+            }
+        }
+        EDGES.add(edgeCount);
+        return graph.build();
+    }
+
+    // "u - v": u is everything before the first dash, v everything up to the next one
+    private static String addEdge(CsrGraph.Builder graph, IdTable vertices, UnionFind components, byte[] bytes,
+                                  int from, int to) {
+        int dash = indexOf(bytes, (byte) '-', from, to);
+        if (dash < 0) {
+            return "Invalid edge format";
+        }
+        int vEnd = indexOf(bytes, (byte) '-', dash + 1, to);
+        if (vEnd < 0) {
+            vEnd = to;
+        }
+        int uStart = skipSpace(bytes, from, dash);
+        int vStart = skipSpace(bytes, dash + 1, vEnd);
+        int u = vertices.find(bytes, uStart, trimEnd(bytes, uStart, dash));
+        int v = vertices.find(bytes, vStart, trimEnd(bytes, vStart, vEnd));
+        if (u < 0 || v < 0) {
+            return "Invalid edge with undefined vertices";
+        }
+        graph.addEdge(u, v, 1);
+        if (components != null) {
+            components.union(u, v);
+        }
+        return null;
+    }
+
+    // "u - v w" split on whitespace: u is the first token, v the third and the weight the last
+    private static String addWeightedEdge(CsrGraph.Builder graph, IdTable vertices, UnionFind components, byte[] bytes,
+                                          int from, int to) {
+        int[] starts = new int[3];
+        int[] ends = new int[3];
+        int tokens = 0;
+        int lastStart = -1, lastEnd = -1;
+        int i = from;
+        while (true) {
+            while (i < to && isWhitespace(bytes[i])) {
+                i++;
+            }
+            if (i == to) {
+                break;
+            }
+            int start = i;
+            while (i < to && !isWhitespace(bytes[i])) {
+                i++;
+            }
+            if (tokens < 3) {
+                starts[tokens] = start;
+                ends[tokens] = i;
+            }
+            tokens++;
+            lastStart = start;
+            lastEnd = i;
+        }
+        long weight = tokens < 4 ? Long.MIN_VALUE : parseInt(bytes, lastStart, lastEnd);
+        if (weight == Long.MIN_VALUE) {
+            return "Invalid edge format";
+        }
+        int u = vertices.find(bytes, starts[0], ends[0]);
+        int v = vertices.find(bytes, starts[2], ends[2]);
+        if (u < 0 || v < 0) {
+            return "Invalid edge with undefined vertices";
+        }
+        graph.addEdge(u, v, (int) weight);
+        if (components != null) {
+            components.union(u, v);
+        }
+        return null;
+    }
+
+    // Same rules as Integer.parseInt for ASCII digits, Long.MIN_VALUE if the token is not an int
+    private static long parseInt(byte[] bytes, int from, int to) {
+        boolean negative = bytes[from] == '-';
+        if (negative || bytes[from] == '+') {
+            from++;
+        }
+        if (from == to) {
+            return Long.MIN_VALUE;
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return Long.MIN_VALUE;
+            }
+            value = value * 10 + digit;
+            if (value > Integer.MAX_VALUE + 1L) {
+                return Long.MIN_VALUE;
+            }
+        }
+        value = negative ? -value : value;
+        return value > Integer.MAX_VALUE ? Long.MIN_VALUE : value;
+    }
+
+    // The characters \s matches
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == 0x0B || b == '\f' || b == '\r';
+    }
+
+    private static int indexOf(byte[] bytes, byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Skips what String.trim would strip from the front
+    private static int skipSpace(byte[] bytes, int from, int to) {
+        while (from < to && (bytes[from] & 0xFF) <= ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    private static int trimEnd(byte[] bytes, int from, int to) {
+        while (to > from && (bytes[to - 1] & 0xFF) <= ' ') {
+            to--;
+        }
+        return to;
+    }
+
+    private static boolean startsWith(byte[] bytes, int from, int to, byte[] prefix) {
+        if (to - from < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[from + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // One section on its way through the pipeline
+    private static final class Output {
+        final boolean isGraph;
+        final StringBuilder errors;
+        final CsrGraph graph;
+        final UnionFind components;
+        final ByteArrayOutputStream text = new ByteArrayOutputStream(); // what the handler printed
+
+        Output(boolean isGraph, StringBuilder errors, CsrGraph graph, UnionFind components) {
+            this.isGraph = isGraph;
+            this.errors = errors;
+            this.graph = graph;
+            this.components = components;
+        }
+    }
+
+    // Open-addressing map from id bytes to vertex index, so edge lines look their vertices up
+    // without making a String. Keys point into the section being parsed.
+    private static final class IdTable {
+        private byte[] keys; // the section; every key is a range of it
+        private int[] starts = new int[16];
+        private int[] lengths = new int[16];
+        private int[] hashes = new int[16];
+        private int[] values = new int[16];
+        private int[] slots = new int[32]; // entry + 1, 0 for empty
+        private int size;
+
+        int find(byte[] bytes, int from, int to) {
+            if (size == 0) {
+                return -1;
+            }
+            int hash = hash(bytes, from, to);
+            int mask = slots.length - 1;
+            for (int slot = hash & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+                int entry = slots[slot] - 1;
+                if (hashes[entry] == hash && equals(entry, bytes, from, to)) {
+                    return values[entry];
+                }
+            }
+            return -1;
+        }
+
+        void add(byte[] bytes, int from, int to, int value) {
+            keys = bytes;
+            if (size == starts.length) {
+                int capacity = size * 2;
+                starts = Arrays.copyOf(starts, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+                hashes = Arrays.copyOf(hashes, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            starts[size] = from;
+            lengths[size] = to - from;
+            hashes[size] = hash(bytes, from, to);
+            values[size] = value;
+            size++;
+            if (size * 2 > slots.length) {
+                slots = new int[slots.length * 2];
+                for (int entry = 0; entry < size; entry++) {
+                    insert(entry);
+                }
+            } else {
+                insert(size - 1);
+            }
+        }
+
+        private void insert(int entry) {
+            int mask = slots.length - 1;
+            int slot = hashes[entry] & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = entry + 1;
+        }
+
+        private boolean equals(int entry, byte[] bytes, int from, int to) {
+            return Arrays.equals(keys, starts[entry], starts[entry] + lengths[entry], bytes, from, to);
+        }
+
+        // FNV-1a, then spread so the low bits used for the slot depend on every byte
+        private static int hash(byte[] bytes, int from, int to) {
+            int h = 0x811C9DC5;
+            for (int i = from; i < to; i++) {
+                h = (h ^ (bytes[i] & 0xFF)) * 0x01000193;
+            }
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -0,0 +1,267 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.CRC32C;
+
+// Binary image of a parsed graph file, so later runs can memory-map the graphs instead of
+// parsing the text again. It holds every section GraphFileParser cut the file into, in order:
+// the error lines parsing reported, then for a graph its ids and CSR arrays exactly as
+// CsrGraph.Builder laid them out. A mapped graph reads its arrays straight from the file.
+//
+// Layout, little-endian, every block padded to 4 bytes so the int arrays can be viewed in place:
+//
+//   header   magic, version, flags (1 directed, 2 weighted), section count,
+//            source file size and modified time, body length
+//   section  kind (1 graph, 0 lines before the first graph), error bytes, vertex count,
+//            edge count, id bytes
+//            error text (UTF-8)
+//            id offsets [vertex count + 1], id text (UTF-8)
+//            offsets [vertex count + 1], targets [edge count], weights [edge count] if weighted
+//   trailer  CRC32C of the body followed by the header
+//
+// A snapshot is only used while its source file has the size and modified time recorded in it
+// and the checksum matches; anything else means parsing the text again.
+public class GraphSnapshot {
+
+    private static final int MAGIC = 0x50414E53; // "SNAP"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 40;
+    private static final int DIRECTED = 1, WEIGHTED = 2;
+
+    // One section of the source file
+    public static class Section {
+        public final boolean isGraph;
+        public final String errors; // lines parsing reported, each ending in a line separator
+        public final CsrGraph graph;
+
+        Section(boolean isGraph, String errors, CsrGraph graph) {
+            this.isGraph = isGraph;
+            this.errors = errors;
+            this.graph = graph;
+        }
+    }
+
+    private final List<Section> sections;
+
+    private GraphSnapshot(List<Section> sections) {
+        this.sections = sections;
+    }
+
+    public List<Section> sections() {
+        return sections;
+    }
+
+    // Where the snapshot of a graph file lives: next to it, with .snapshot appended
+    public static Path cacheFile(Path source) {
+        return source.resolveSibling(source.getFileName() + ".snapshot");
+    }
+
+    // Maps the snapshot if it exists, belongs to the current version of source, has the
+    // expected weightedness and passes its checksum. Returns null otherwise.
+    public static GraphSnapshot openIfCurrent(Path snapshot, Path source, boolean weighted) throws IOException {
+        if (!Files.isRegularFile(snapshot)) {
+            return null;
+        }
+        ByteBuffer file;
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE + 4 || channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        if (file.getInt(0) != MAGIC || file.getInt(4) != VERSION
+                || ((file.getInt(8) & WEIGHTED) != 0) != weighted
+                || file.getLong(16) != Files.size(source)
+                || file.getLong(24) != Files.getLastModifiedTime(source).toMillis()
+                || file.getLong(32) != file.limit() - HEADER_SIZE - 4) {
+            return null;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(file.slice(HEADER_SIZE, file.limit() - HEADER_SIZE - 4));
+        crc.update(file.slice(0, HEADER_SIZE));
+        if ((int) crc.getValue() != file.getInt(file.limit() - 4)) {
+            return null;
+        }
+        return new GraphSnapshot(readSections(file));
+    }
+
+    private static List<Section> readSections(ByteBuffer file) {
+        boolean directed = (file.getInt(8) & DIRECTED) != 0;
+        boolean weighted = (file.getInt(8) & WEIGHTED) != 0;
+        int count = file.getInt(12);
+        List<Section> sections = new ArrayList<>(count);
+        int position = HEADER_SIZE;
+        for (int i = 0; i < count; i++) {
+            boolean isGraph = file.getInt(position) == 1;
+            int errorBytes = file.getInt(position + 4);
+            int n = file.getInt(position + 8);
+            int m = file.getInt(position + 12);
+            int idBytes = file.getInt(position + 16);
+            position += 20;
+
+            byte[] errors = new byte[errorBytes];
+            file.get(position, errors);
+            position += padded(errorBytes);
+            IntBuffer idOffsets = ints(file, position, n + 1);
+            position += 4 * (n + 1);
+            ByteBuffer idData = file.slice(position, idBytes);
+            position += padded(idBytes);
+            IntBuffer offsets = ints(file, position, n + 1);
+            position += 4 * (n + 1);
+            IntBuffer targets = ints(file, position, m);
+            position += 4 * m;
+            IntBuffer weights = null;
+            if (weighted) {
+                weights = ints(file, position, m);
+                position += 4 * m;
+            }
+            CsrGraph graph = CsrGraph.wrap(idData, idOffsets, offsets, targets, weights, directed);
+            sections.add(new Section(isGraph, new String(errors, StandardCharsets.UTF_8), graph));
+        }
+        return sections;
+    }
+
+    private static IntBuffer ints(ByteBuffer file, int position, int count) {
+        return file.slice(position, 4 * count).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    private static int padded(int bytes) {
+        return (bytes + 3) & ~3;
+    }
+
+    // Writes a snapshot one section at a time, in file order, to a temporary file that replaces
+    // the snapshot only once finish() has written the header and checksum
+    public static class Writer implements Closeable {
+        private static final int BUFFER_SIZE = 1 << 16;
+
+        private final Path snapshot;
+        private final Path temp;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32C crc = new CRC32C();
+        private final long sourceSize;
+        private final long sourceModified;
+        private final boolean weighted;
+        private boolean directed;
+        private long bodyLength;
+        private int sections;
+        private boolean finished;
+
+        public Writer(Path snapshot, Path source, boolean weighted) throws IOException {
+            this.snapshot = snapshot;
+            this.sourceSize = Files.size(source);
+            this.sourceModified = Files.getLastModifiedTime(source).toMillis();
+            this.weighted = weighted;
+            this.temp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+            this.channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                            StandardOpenOption.TRUNCATE_EXISTING);
+            channel.position(HEADER_SIZE);
+        }
+
+        public void add(boolean isGraph, String errors, CsrGraph graph) throws IOException {
+            int n = graph.vertexCount();
+            int m = graph.edgeCount();
+            directed = graph.isDirected();
+            byte[] errorBytes = errors.getBytes(StandardCharsets.UTF_8);
+            byte[][] ids = new byte[n][];
+            int[] idOffsets = new int[n + 1];
+            for (int v = 0; v < n; v++) {
+                ids[v] = graph.id(v).getBytes(StandardCharsets.UTF_8);
+                idOffsets[v + 1] = idOffsets[v] + ids[v].length;
+            }
+
+            putInt(isGraph ? 1 : 0);
+            putInt(errorBytes.length);
+            putInt(n);
+            putInt(m);
+            putInt(idOffsets[n]);
+            putBytes(errorBytes);
+            pad(errorBytes.length);
+            for (int offset : idOffsets) {
+                putInt(offset);
+            }
+            for (byte[] id : ids) {
+                putBytes(id);
+            }
+            pad(idOffsets[n]);
+            for (int v = 0; v <= n; v++) {
+                putInt(v < n ? graph.begin(v) : m);
+            }
+            for (int e = 0; e < m; e++) {
+                putInt(graph.target(e));
+            }
+            if (weighted) {
+                for (int e = 0; e < m; e++) {
+                    putInt(graph.weight(e));
+                }
+            }
+            sections++;
+        }
+
+        // Writes the header and checksum and moves the snapshot into place
+        public void finish() throws IOException {
+            flush();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION)
+                  .putInt((directed ? DIRECTED : 0) | (weighted ? WEIGHTED : 0)).putInt(sections)
+                  .putLong(sourceSize).putLong(sourceModified).putLong(bodyLength).flip();
+            crc.update(header.duplicate());
+            ByteBuffer trailer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            trailer.putInt((int) crc.getValue()).flip();
+            channel.write(trailer);
+            channel.write(header, 0);
+            channel.close();
+            Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            finished = true;
+        }
+
+        private void putInt(int value) throws IOException {
+            if (buffer.remaining() < 4) {
+                flush();
+            }
+            buffer.putInt(value);
+        }
+
+        private void putBytes(byte[] bytes) throws IOException {
+            for (int from = 0; from < bytes.length; ) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                int length = Math.min(buffer.remaining(), bytes.length - from);
+                buffer.put(bytes, from, length);
+                from += length;
+            }
+        }
+
+        private void pad(int length) throws IOException {
+            for (int i = length; i < padded(length); i++) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                buffer.put((byte) 0);
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            bodyLength += buffer.remaining();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        // Without finish() the partial file is deleted and any old snapshot is left alone
+        @Override
+        public void close() throws IOException {
+            if (!finished) {
+                channel.close();
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+}
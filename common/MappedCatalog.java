@@ -0,0 +1,238 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// Read-only view of a magicitems-style file (one UTF-8 entry per line) backed by memory-mapped
+// segments of the file. Opening the catalog only records where each entry starts and how long
+// it is; a String is decoded when get is called, and the byte-level search methods compare
+// entries against an encoded key without decoding them at all.
+public class MappedCatalog {
+
+    // Files larger than this are mapped as several segments split on line boundaries
+    private static final long MAX_SEGMENT_SIZE = 1L << 30;
+
+    private static final long NEWLINES = 0x0A0A0A0A0A0A0A0AL;
+    private static final long LOW_SEVEN_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+    private final MappedByteBuffer[] segments;
+    private final long[] segmentStarts; // file offset of each segment
+    private long[] entryStarts; // file offset of each entry
+    private int[] entryLengths; // entry length in bytes
+    private int size;
+
+    private MappedCatalog(MappedByteBuffer[] segments, long[] segmentStarts) {
+        this.segments = segments;
+        this.segmentStarts = segmentStarts;
+        this.entryStarts = new long[1024];
+        this.entryLengths = new int[1024];
+    }
+
+    // Maps the file and indexes its lines. With trimEntries set, surrounding whitespace is
+    // dropped and blank lines are skipped, matching the readLine().trim() loops it replaces.
+    public static MappedCatalog open(String fileName, boolean trimEntries) throws IOException {
+        return open(Paths.get(fileName), trimEntries);
+    }
+
+    public static MappedCatalog open(Path file, boolean trimEntries) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            List<MappedByteBuffer> segments = new ArrayList<>();
+            List<Long> starts = new ArrayList<>();
+
+            long position = 0;
+            while (position < fileSize) {
+                long length = Math.min(MAX_SEGMENT_SIZE, fileSize - position);
+                MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                if (position + length < fileSize) {
+                    // End this segment after its last newline so no entry straddles two segments
+                    int end = (int) length - 1;
+                    while (end >= 0 && segment.get(end) != '\n') {
+                        end--;
+                    }
+                    if (end < 0) {
+                        throw new IOException("Line longer than " + MAX_SEGMENT_SIZE + " bytes in " + file);
+                    }
+                    length = end + 1;
+                    segment = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                }
+                segments.add(segment);
+                starts.add(position);
+                position += length;
+            }
+
+            long[] segmentStarts = new long[starts.size()];
+            for (int i = 0; i < segmentStarts.length; i++) {
+                segmentStarts[i] = starts.get(i);
+            }
+            MappedCatalog catalog = new MappedCatalog(segments.toArray(new MappedByteBuffer[0]), segmentStarts);
+            for (int i = 0; i < catalog.segments.length; i++) {
+                catalog.indexSegment(i, trimEntries);
+            }
+            return catalog;
+        }
+    }
+
+    // Finds every newline in the segment eight bytes at a time and records the entries between them
+    private void indexSegment(int segmentIndex, boolean trimEntries) {
+        ByteBuffer buffer = segments[segmentIndex].duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        long base = segmentStarts[segmentIndex];
+        int limit = buffer.limit();
+        int lineStart = 0;
+        int i = 0;
+        for (; i + Long.BYTES <= limit; i += Long.BYTES) {
+            long word = buffer.getLong(i) ^ NEWLINES;
+            // High bit set exactly in the zero bytes (the newlines). No carry crosses bytes here,
+            // unlike the shorter (word - 0x01..) & ~word & 0x80.. test, which also flags a 0x0B
+            // right after a newline.
+            long found = ~(((word & LOW_SEVEN_BITS) + LOW_SEVEN_BITS) | word | LOW_SEVEN_BITS);
+            while (found != 0) {
+                int newline = i + (Long.numberOfTrailingZeros(found) >>> 3);
+                addEntry(buffer, base, lineStart, newline, trimEntries);
+                lineStart = newline + 1;
+                found &= found - 1;
+            }
+        }
+        for (; i < limit; i++) {
+            if (buffer.get(i) == '\n') {
+                addEntry(buffer, base, lineStart, i, trimEntries);
+                lineStart = i + 1;
+            }
+        }
+        // A final line without a trailing newline is still an entry
+        if (lineStart < limit) {
+            addEntry(buffer, base, lineStart, limit, trimEntries);
+        }
+    }
+
+    private void addEntry(ByteBuffer buffer, long base, int from, int to, boolean trimEntries) {
+        if (to > from && buffer.get(to - 1) == '\r') {
+            to--;
+        }
+        if (trimEntries) {
+            while (from < to && (buffer.get(from) & 0xFF) <= ' ') {
+                from++;
+            }
+            while (to > from && (buffer.get(to - 1) & 0xFF) <= ' ') {
+                to--;
+            }
+            if (from == to) {
+                return;
+            }
+        }
+        if (size == entryStarts.length) {
+            entryStarts = Arrays.copyOf(entryStarts, size * 2);
+            entryLengths = Arrays.copyOf(entryLengths, size * 2);
+        }
+        entryStarts[size] = base + from;
+        entryLengths[size] = to - from;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int segmentOf(long fileOffset) {
+        int segment = Arrays.binarySearch(segmentStarts, fileOffset);
+        return segment >= 0 ? segment : -segment - 2;
+    }
+
+    // Decodes entry i into a String
+    public String get(int index) {
+        byte[] bytes = bytesAt(index);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Copies the raw UTF-8 bytes of entry i
+    public byte[] bytesAt(int index) {
+        checkIndex(index);
+        long start = entryStarts[index];
+        int segment = segmentOf(start);
+        byte[] bytes = new byte[entryLengths[index]];
+        segments[segment].get((int) (start - segmentStarts[segment]), bytes);
+        return bytes;
+    }
+
+    // Compares entry i with a UTF-8 encoded key byte by byte (unsigned), without decoding the entry.
+    // Byte order is code point order, which is String.compareTo order for text without surrogates.
+    public int compareAt(int index, byte[] key) {
+        checkIndex(index);
+        long start = entryStarts[index];
+        int segment = segmentOf(start);
+        ByteBuffer buffer = segments[segment];
+        int offset = (int) (start - segmentStarts[segment]);
+        int length = entryLengths[index];
+        int n = Math.min(length, key.length);
+        for (int i = 0; i < n; i++) {
+            int diff = (buffer.get(offset + i) & 0xFF) - (key[i] & 0xFF);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return length - key.length;
+    }
+
+    public boolean equalsAt(int index, byte[] key) {
+        return entryLengths[index] == key.length && compareAt(index, key) == 0;
+    }
+
+    // Linear search over the mapped entries, one comparison per entry checked
+    public int linearSearch(String searchItem, int[] comparisonCount) {
+        byte[] key = searchItem.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < size; i++) {
+            comparisonCount[0]++;
+            if (equalsAt(i, key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Binary search over a file whose lines are already sorted, one comparison per probe
+    public int binarySearch(String searchItem, int[] comparisonCount) {
+        byte[] key = searchItem.getBytes(StandardCharsets.UTF_8);
+        int left = 0;
+        int right = size - 1;
+        while (left <= right) {
+            int mid = left + (right - left) / 2;
+            comparisonCount[0]++;
+            int cmp = compareAt(mid, key);
+            if (cmp == 0) {
+                return mid;
+            }
+            if (cmp < 0) {
+                left = mid + 1;
+            } else {
+                right = mid - 1;
+            }
+        }
+        return -1;
+    }
+
+    // List view so the existing List<String> searches can run directly over the mapped file.
+    // Each get decodes a fresh String.
+    public List<String> asList() {
+        return new EntryList();
+    }
+
+    private class EntryList extends AbstractList<String> implements RandomAccess {
+        @Override
+        public String get(int index) {
+            return MappedCatalog.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for catalog of " + size);
+        }
+    }
+}
@@ -0,0 +1,374 @@
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+// Process-wide registry of counters, histograms and timers shared by the assignments.
+// Metrics are off unless the JVM is started with -Dmetrics.out=<file> (or -Dmetrics.enabled=true
+// to collect without writing a file). ENABLED is a static final, so when it is off the JIT folds
+// every record call away and the instrumented code runs as if it were not there.
+//
+// Histograms are log-linear: exact below 64, then 32 buckets per power of two, so any recorded
+// value is reported within about 3%. Each thread records into its own bucket array with plain
+// increments, and the arrays are only summed when a snapshot is taken, so recording never
+// contends. Snapshots taken while other threads are still recording may miss their last few
+// values; the export at the end of main sees everything.
+public class Metrics {
+
+    public static final boolean ENABLED =
+            System.getProperty("metrics.out") != null || Boolean.getBoolean("metrics.enabled");
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS; // 64
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+    private static final int BUCKETS = SUB_BUCKETS + (Long.SIZE - SUB_BUCKET_BITS) * HALF_SUB_BUCKETS;
+
+    private static final double[] PERCENTILES = {0.50, 0.90, 0.99, 0.999};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p999"};
+
+    private static final Map<String, Object> registry = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    // Monotonic count of events, striped so hot paths on many threads do not share a cache line
+    public static final class Counter {
+        final String name;
+        private final LongAdder value = new LongAdder();
+
+        Counter(String name) {
+            this.name = name;
+        }
+
+        public void increment() {
+            if (ENABLED) {
+                value.increment();
+            }
+        }
+
+        public void add(long amount) {
+            if (ENABLED) {
+                value.add(amount);
+            }
+        }
+
+        public long sum() {
+            return value.sum();
+        }
+    }
+
+    // Distribution of non-negative values (latencies, comparisons, probes, bytes)
+    public static final class Histogram {
+        final String name;
+        final String unit;
+        private final Queue<Recorder> recorders = new ConcurrentLinkedQueue<>();
+        private final ThreadLocal<Recorder> local = ThreadLocal.withInitial(() -> {
+            Recorder recorder = new Recorder();
+            recorders.add(recorder);
+            return recorder;
+        });
+
+        Histogram(String name, String unit) {
+            this.name = name;
+            this.unit = unit;
+        }
+
+        public void record(long value) {
+            if (ENABLED) {
+                local.get().record(Math.max(0, value));
+            }
+        }
+
+        public Snapshot snapshot() {
+            long[] counts = new long[BUCKETS];
+            long count = 0, sum = 0, min = Long.MAX_VALUE, max = 0;
+            for (Recorder recorder : recorders) {
+                for (int i = 0; i < BUCKETS; i++) {
+                    counts[i] += recorder.counts[i];
+                }
+                count += recorder.count;
+                sum += recorder.sum;
+                min = Math.min(min, recorder.min);
+                max = Math.max(max, recorder.max);
+            }
+            double[] values = new double[PERCENTILES.length];
+            for (int p = 0; p < PERCENTILES.length; p++) {
+                values[p] = count == 0 ? 0 : percentile(counts, count, PERCENTILES[p], max);
+            }
+            return new Snapshot(name, "histogram", unit, count, sum, count == 0 ? 0 : min, max, values);
+        }
+    }
+
+    // One thread's share of a histogram
+    private static final class Recorder {
+        final long[] counts = new long[BUCKETS];
+        long count;
+        long sum;
+        long min = Long.MAX_VALUE;
+        long max;
+
+        void record(long value) {
+            counts[bucketOf(value)]++;
+            count++;
+            sum += value;
+            if (value < min) {
+                min = value;
+            }
+            if (value > max) {
+                max = value;
+            }
+        }
+    }
+
+    // Values below 64 get a bucket each. Above that the top six bits pick one of the 32 buckets
+    // in the value's power of two.
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int sub = (int) (value >>> shift) - HALF_SUB_BUCKETS;
+        return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + sub;
+    }
+
+    // Largest value that lands in the bucket
+    static long bucketLimit(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+        long sub = (bucket - SUB_BUCKETS) % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    private static double percentile(long[] counts, long count, double quantile, long max) {
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(bucketLimit(i), max);
+            }
+        }
+        return max;
+    }
+
+    // Latency histogram in nanoseconds, optionally paired with one for bytes allocated by the
+    // timed thread. Allocation tracking asks the JVM for the thread's allocation counter at both
+    // ends of the span, so keep it for coarse operations (a sort, a whole graph), not per query.
+    public static final class Timer {
+        final Histogram latency;
+        final Histogram allocations; // null when not tracked
+
+        Timer(Histogram latency, Histogram allocations) {
+            this.latency = latency;
+            this.allocations = allocations;
+        }
+
+        public Span start() {
+            if (!ENABLED) {
+                return Span.NOOP;
+            }
+            return new Span(this, allocations == null ? 0 : allocatedBytes(), System.nanoTime());
+        }
+    }
+
+    public static final class Span implements AutoCloseable {
+        static final Span NOOP = new Span(null, 0, 0);
+
+        private final Timer timer;
+        private final long startBytes;
+        private final long startNanos;
+
+        Span(Timer timer, long startBytes, long startNanos) {
+            this.timer = timer;
+            this.startBytes = startBytes;
+            this.startNanos = startNanos;
+        }
+
+        // Records the elapsed time (and allocation) since start
+        public void stop() {
+            if (timer == null) {
+                return;
+            }
+            timer.latency.record(System.nanoTime() - startNanos);
+            if (timer.allocations != null) {
+                timer.allocations.record(allocatedBytes() - startBytes);
+            }
+        }
+
+        @Override
+        public void close() {
+            stop();
+        }
+    }
+
+    // Point-in-time summary of one metric, the unit of export
+    public static final class Snapshot {
+        public final String name;
+        public final String type;
+        public final String unit;
+        public final long count;
+        public final long sum;
+        public final long min;
+        public final long max;
+        public final double[] percentiles; // matches PERCENTILES, empty for counters
+
+        Snapshot(String name, String type, String unit, long count, long sum, long min, long max,
+                 double[] percentiles) {
+            this.name = name;
+            this.type = type;
+            this.unit = unit;
+            this.count = count;
+            this.sum = sum;
+            this.min = min;
+            this.max = max;
+            this.percentiles = percentiles;
+        }
+
+        public double mean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+    }
+
+    public static Counter counter(String name) {
+        return lookup(name, Counter.class, () -> new Counter(name));
+    }
+
+    public static Histogram histogram(String name, String unit) {
+        return lookup(name, Histogram.class, () -> new Histogram(name, unit));
+    }
+
+    // Timer recording latency into "<name>.latency"
+    public static Timer timer(String name) {
+        return timer(name, false);
+    }
+
+    // With trackAllocations set, also records bytes allocated into "<name>.allocated"
+    public static Timer timer(String name, boolean trackAllocations) {
+        // Histograms first: registering them from inside the timer's computeIfAbsent would
+        // update the map recursively, which ConcurrentHashMap rejects once it has to resize
+        Histogram latency = histogram(name + ".latency", "ns");
+        Histogram allocated = trackAllocations ? histogram(name + ".allocated", "bytes") : null;
+        return lookup(name, Timer.class, () -> new Timer(latency, allocated));
+    }
+
+    private static <T> T lookup(String name, Class<T> type, java.util.function.Supplier<T> create) {
+        Object metric = registry.computeIfAbsent(name, key -> create.get());
+        if (!type.isInstance(metric)) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a "
+                                               + metric.getClass().getSimpleName());
+        }
+        return type.cast(metric);
+    }
+
+    // Bytes allocated so far by the current thread, or 0 if the JVM does not report it
+    static long allocatedBytes() {
+        return ALLOCATION_BEAN == null ? 0 : ALLOCATION_BEAN.getCurrentThreadAllocatedBytes();
+    }
+
+    private static final com.sun.management.ThreadMXBean ALLOCATION_BEAN = allocationBean();
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+            if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+                return sunBean;
+            }
+        }
+        return null;
+    }
+
+    // Every registered counter and histogram, sorted by name. Timers show up as their histograms.
+    public static List<Snapshot> snapshot() {
+        List<Snapshot> snapshots = new ArrayList<>();
+        for (Object metric : new TreeMap<>(registry).values()) {
+            if (metric instanceof Counter) {
+                Counter counter = (Counter) metric;
+                long sum = counter.sum();
+                snapshots.add(new Snapshot(counter.name, "counter", "", sum, sum, 0, 0, new double[0]));
+            } else if (metric instanceof Histogram) {
+                snapshots.add(((Histogram) metric).snapshot());
+            }
+        }
+        return snapshots;
+    }
+
+    public static void writeJson(List<Snapshot> snapshots, Appendable out) throws IOException {
+        out.append("{\n  \"metrics\": [");
+        for (int s = 0; s < snapshots.size(); s++) {
+            Snapshot snap = snapshots.get(s);
+            out.append(s == 0 ? "\n" : ",\n");
+            out.append("    {\"name\": ").append(quote(snap.name))
+               .append(", \"type\": ").append(quote(snap.type));
+            if (snap.type.equals("counter")) {
+                out.append(", \"value\": ").append(Long.toString(snap.sum)).append('}');
+                continue;
+            }
+            out.append(", \"unit\": ").append(quote(snap.unit))
+               .append(", \"count\": ").append(Long.toString(snap.count))
+               .append(", \"sum\": ").append(Long.toString(snap.sum))
+               .append(", \"min\": ").append(Long.toString(snap.min))
+               .append(", \"max\": ").append(Long.toString(snap.max))
+               .append(", \"mean\": ").append(format(snap.mean()));
+            for (int p = 0; p < PERCENTILES.length; p++) {
+                out.append(", \"").append(PERCENTILE_NAMES[p]).append("\": ").append(format(snap.percentiles[p]));
+            }
+            out.append('}');
+        }
+        out.append(snapshots.isEmpty() ? "]\n}\n" : "\n  ]\n}\n");
+    }
+
+    public static void writeCsv(List<Snapshot> snapshots, Appendable out) throws IOException {
+        out.append("name,type,unit,count,sum,min,max,mean");
+        for (int p = 0; p < PERCENTILES.length; p++) {
+            out.append(',').append(PERCENTILE_NAMES[p]);
+        }
+        out.append('\n');
+        for (Snapshot snap : snapshots) {
+            out.append(snap.name).append(',').append(snap.type).append(',').append(snap.unit)
+               .append(',').append(Long.toString(snap.count)).append(',').append(Long.toString(snap.sum));
+            if (snap.type.equals("counter")) {
+                out.append(",,,").append(",".repeat(PERCENTILES.length)).append('\n'); // no distribution
+                continue;
+            }
+            out.append(',').append(Long.toString(snap.min)).append(',').append(Long.toString(snap.max))
+               .append(',').append(format(snap.mean()));
+            for (int p = 0; p < PERCENTILES.length; p++) {
+                out.append(',').append(format(snap.percentiles[p]));
+            }
+            out.append('\n');
+        }
+    }
+
+    // Writes a snapshot to the file named by -Dmetrics.out, CSV if it ends in .csv (or
+    // -Dmetrics.format=csv), JSON otherwise. Does nothing when that property is not set.
+    public static void exportIfRequested() {
+        String target = System.getProperty("metrics.out");
+        if (target == null) {
+            return;
+        }
+        String format = System.getProperty("metrics.format", target.endsWith(".csv") ? "csv" : "json");
+        try (Writer out = Files.newBufferedWriter(Paths.get(target), StandardCharsets.UTF_8)) {
+            if (format.equalsIgnoreCase("csv")) {
+                writeCsv(snapshot(), out);
+            } else {
+                writeJson(snapshot(), out);
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing metrics to " + target + ": " + e.getMessage());
+        }
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    private static String quote(String str) {
+        return "\"" + str.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}
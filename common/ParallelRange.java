@@ -0,0 +1,46 @@
+import java.util.concurrent.*;
+
+// Runs a body over an index range on a fork-join pool, halving the range until pieces are at
+// most `grain` long. Ranges no longer than one grain run on the calling thread, so small
+// inputs pay nothing for the pool. Shared by the parallel BFS and SSSP.
+public final class ParallelRange {
+
+    public interface Body {
+        void run(int from, int to);
+    }
+
+    private ParallelRange() {
+    }
+
+    public static void forEach(ForkJoinPool pool, int from, int to, int grain, Body body) {
+        if (to - from <= grain) {
+            body.run(from, to);
+        } else {
+            pool.invoke(new Task(body, from, to, grain));
+        }
+    }
+
+    private static final class Task extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final Body body;
+        final int from, to, grain;
+
+        Task(Body body, int from, int to, int grain) {
+            this.body = body;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                body.run(from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Task(body, from, mid, grain), new Task(body, mid, to, grain));
+        }
+    }
+}
@@ -0,0 +1,102 @@
+import java.util.*;
+
+// Disjoint sets over dense vertex indexes 0..n-1, for connectivity while a graph is still being
+// read. Vertices and edges are added as they arrive, and connected(u, v) and componentCount()
+// can be asked at any point without a traversal. Parents live in an int[] and ranks in a
+// byte[] (a rank never exceeds log2 n). Union by rank keeps trees shallow, and find points
+// every vertex on its path straight at the root, so each operation is near constant time
+// amortized.
+public class UnionFind {
+
+    private int[] parents;
+    private byte[] ranks;
+    private int size;
+    private int components;
+
+    public UnionFind() {
+        this(16);
+    }
+
+    public UnionFind(int expectedVertices) {
+        parents = new int[Math.max(1, expectedVertices)];
+        ranks = new byte[parents.length];
+    }
+
+    // Components of a graph that is already built, from its edge slots
+    public static UnionFind of(CsrGraph graph) {
+        UnionFind sets = new UnionFind(graph.vertexCount());
+        for (int v = 0; v < graph.vertexCount(); v++) {
+            sets.addVertex();
+        }
+        for (int v = 0; v < graph.vertexCount(); v++) {
+            for (int e = graph.begin(v); e < graph.end(v); e++) {
+                sets.union(v, graph.target(e));
+            }
+        }
+        return sets;
+    }
+
+    // Adds a vertex in a component of its own and returns its index
+    public int addVertex() {
+        if (size == parents.length) {
+            parents = Arrays.copyOf(parents, size * 2);
+            ranks = Arrays.copyOf(ranks, size * 2);
+        }
+        parents[size] = size;
+        components++;
+        return size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int componentCount() {
+        return components;
+    }
+
+    // Representative of v's component
+    public int find(int v) {
+        checkIndex(v);
+        int root = v;
+        while (parents[root] != root) {
+            root = parents[root];
+        }
+        while (parents[v] != root) {
+            int next = parents[v];
+            parents[v] = root;
+            v = next;
+        }
+        return root;
+    }
+
+    // Joins the components of u and v (an edge u - v, either direction). Returns false if they
+    // were already connected.
+    public boolean union(int u, int v) {
+        int a = find(u);
+        int b = find(v);
+        if (a == b) {
+            return false;
+        }
+        if (ranks[a] < ranks[b]) {
+            parents[a] = b;
+        } else if (ranks[a] > ranks[b]) {
+            parents[b] = a;
+        } else {
+            parents[b] = a;
+            ranks[a]++;
+        }
+        components--;
+        return true;
+    }
+
+    public boolean connected(int u, int v) {
+        return find(u) == find(v);
+    }
+
+    private void checkIndex(int v) {
+        if (v < 0 || v >= size) {
+            throw new IndexOutOfBoundsException("Vertex " + v + " out of bounds for " + size + " vertices");
+        }
+    }
+}